@@ -0,0 +1,99 @@
+package assignment2;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 类别属性编码：续航（电池）/ 防水 / 库存
+ * <p>
+ * 导入时把原始字符串解码成一个枚举序号（byte），打分时只读编码对应的加成，
+ * 不再对每个商品反复 toLowerCase + contains。
+ * 解码规则与原 batteryBonus / waterBonus / availBonus 相同（按优先级依次 contains）。
+ * 类别值高度重复，解码结果按原始字符串缓存（上限 MEMO_LIMIT 个不同取值）。
+ */
+final class Attributes {
+
+    private static final int MEMO_LIMIT = 4096;
+
+    private Attributes() {
+    }
+
+    enum Battery {
+        NONE(0.0), AA(0.10), NIMH(0.20), LITHIUM(0.30);
+
+        static final Battery[] VALUES = values();
+        private static final Map<String, Battery> MEMO = new ConcurrentHashMap<>();
+
+        final double bonus;
+
+        Battery(double bonus) {
+            this.bonus = bonus;
+        }
+
+        static Battery decode(String b) {
+            if (b == null) return NONE;
+            Battery c = MEMO.get(b);
+            if (c != null) return c;
+            String s = b.toLowerCase();
+            if (s.contains("lithium")) c = LITHIUM;
+            else if (s.contains("nimh")) c = NIMH;
+            else if (s.contains("aa")) c = AA;
+            else c = NONE;
+            if (MEMO.size() < MEMO_LIMIT) MEMO.put(b, c);
+            return c;
+        }
+    }
+
+    enum Water {
+        NONE(0.0), SPLASH(0.10), IPX7(0.25), FULLY(0.30);
+
+        static final Water[] VALUES = values();
+        private static final Map<String, Water> MEMO = new ConcurrentHashMap<>();
+
+        final double bonus;
+
+        Water(double bonus) {
+            this.bonus = bonus;
+        }
+
+        static Water decode(String w) {
+            if (w == null) return NONE;
+            Water c = MEMO.get(w);
+            if (c != null) return c;
+            String s = w.toLowerCase();
+            if (s.contains("fully")) c = FULLY;
+            else if (s.contains("ipx7")) c = IPX7;
+            else if (s.contains("splash")) c = SPLASH;
+            else c = NONE;
+            if (MEMO.size() < MEMO_LIMIT) MEMO.put(w, c);
+            return c;
+        }
+    }
+
+    enum Availability {
+        NONE(0.0), OUT_OF_STOCK(-0.20), ONLINE_ONLY(0.10), LIMITED(0.20), IN_STOCK(0.30);
+
+        static final Availability[] VALUES = values();
+        private static final Map<String, Availability> MEMO = new ConcurrentHashMap<>();
+
+        final double bonus;
+
+        Availability(double bonus) {
+            this.bonus = bonus;
+        }
+
+        static Availability decode(String a) {
+            if (a == null) return NONE;
+            Availability c = MEMO.get(a);
+            if (c != null) return c;
+            String s = a.toLowerCase();
+            if (s.contains("in stock")) c = IN_STOCK;
+            else if (s.contains("limited")) c = LIMITED;
+            else if (s.contains("online only")) c = ONLINE_ONLY;
+            else if (s.contains("out of stock")) c = OUT_OF_STOCK; // 缺货减分
+            else c = NONE;
+            if (MEMO.size() < MEMO_LIMIT) MEMO.put(a, c);
+            return c;
+        }
+    }
+}
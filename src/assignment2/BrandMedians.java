@@ -0,0 +1,177 @@
+package assignment2;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 品牌中位价的流式累加器
+ * <p>
+ * 商品逐个 add(brand, price)，最后 medians() 得到 brand -> 中位价（price <= 0 的忽略）。
+ * - EXACT：每个品牌一个原生 double[]，求中位数时 quickselect，O(n) 而非排序 O(n log n)，无装箱
+ * - APPROX：每个品牌一个 KllSketch，内存有界（约 3k 个 double），秩误差约 O(1/k)
+ * <p>
+ * 中位数取排序后下标 n/2 的元素（与原 brandMedianPrice 一致）。
+ * 两种模式都可 merge，用于并行 / 分片后的汇总；writeTo / readFrom 用于分片之间经文件交换部分结果。
+ */
+final class BrandMedians {
+
+    enum Mode { EXACT, APPROX }
+
+    static final int DEFAULT_SKETCH_K = 200;
+
+    private final Mode mode;
+    private final int sketchK;
+    private final Map<String, ExactPrices> exact = new LinkedHashMap<>();
+    private final Map<String, KllSketch> sketches = new LinkedHashMap<>();
+
+    BrandMedians() {
+        this(Mode.EXACT, DEFAULT_SKETCH_K);
+    }
+
+    BrandMedians(Mode mode, int sketchK) {
+        this.mode = mode;
+        this.sketchK = sketchK;
+    }
+
+    Mode mode() {
+        return mode;
+    }
+
+    int sketchK() {
+        return sketchK;
+    }
+
+    void add(String brand, double price) {
+        if (price <= 0) {
+            return;
+        }
+        if (mode == Mode.EXACT) {
+            exact.computeIfAbsent(brand, b -> new ExactPrices()).add(price);
+        } else {
+            sketches.computeIfAbsent(brand, b -> new KllSketch(sketchK)).add(price);
+        }
+    }
+
+    void merge(BrandMedians other) {
+        for (Map.Entry<String, ExactPrices> e : other.exact.entrySet()) {
+            exact.computeIfAbsent(e.getKey(), b -> new ExactPrices()).addAll(e.getValue());
+        }
+        for (Map.Entry<String, KllSketch> e : other.sketches.entrySet()) {
+            sketches.computeIfAbsent(e.getKey(), b -> new KllSketch(sketchK)).merge(e.getValue());
+        }
+    }
+
+    Map<String, Double> medians() {
+        Map<String, Double> med = new HashMap<>();
+        for (Map.Entry<String, ExactPrices> e : exact.entrySet()) {
+            med.put(e.getKey(), e.getValue().median());
+        }
+        for (Map.Entry<String, KllSketch> e : sketches.entrySet()) {
+            KllSketch s = e.getValue();
+            med.put(e.getKey(), s.valueAtRank(s.count() / 2));
+        }
+        return med;
+    }
+
+    /* ====================== 序列化 ====================== */
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeUTF(mode.name());
+        out.writeInt(sketchK);
+        out.writeInt(exact.size());
+        for (Map.Entry<String, ExactPrices> e : exact.entrySet()) {
+            ExactPrices p = e.getValue();
+            ShardExchange.writeString(out, e.getKey());
+            out.writeInt(p.n);
+            for (int i = 0; i < p.n; i++) {
+                out.writeDouble(p.xs[i]);
+            }
+        }
+        out.writeInt(sketches.size());
+        for (Map.Entry<String, KllSketch> e : sketches.entrySet()) {
+            ShardExchange.writeString(out, e.getKey());
+            e.getValue().writeTo(out);
+        }
+    }
+
+    static BrandMedians readFrom(DataInput in) throws IOException {
+        BrandMedians m = new BrandMedians(Mode.valueOf(in.readUTF()), in.readInt());
+        for (int b = in.readInt(); b > 0; b--) {
+            ExactPrices p = m.exact.computeIfAbsent(ShardExchange.readString(in), k -> new ExactPrices());
+            for (int i = in.readInt(); i > 0; i--) {
+                p.add(in.readDouble());
+            }
+        }
+        for (int b = in.readInt(); b > 0; b--) {
+            m.sketches.put(ShardExchange.readString(in), KllSketch.readFrom(in));
+        }
+        return m;
+    }
+
+    /* ====================== 精确模式：原生数组 + quickselect ====================== */
+    static final class ExactPrices {
+        private double[] xs = new double[8];
+        private int n;
+
+        void add(double x) {
+            if (n == xs.length) {
+                xs = Arrays.copyOf(xs, n * 2);
+            }
+            xs[n++] = x;
+        }
+
+        void addAll(ExactPrices other) {
+            for (int i = 0; i < other.n; i++) {
+                add(other.xs[i]);
+            }
+        }
+
+        int size() {
+            return n;
+        }
+
+        // 原地 quickselect（只改变数组内顺序，不影响后续 add）
+        double median() {
+            return select(xs, n, n / 2);
+        }
+    }
+
+    /** 在 a[0, n) 中原地选出第 k 小（0 起）的元素；Hoare 划分 + 三数取中 */
+    static double select(double[] a, int n, int k) {
+        int lo = 0, hi = n - 1;
+        while (hi > lo) {
+            int mid = (lo + hi) >>> 1;
+            double x = a[lo], y = a[mid], z = a[hi];
+            double pivot = Math.max(Math.min(x, y), Math.min(Math.max(x, y), z));
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (a[i] < pivot) {
+                    i++;
+                }
+                while (a[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    double t = a[i];
+                    a[i] = a[j];
+                    a[j] = t;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return a[k];
+            }
+        }
+        return a[k];
+    }
+}
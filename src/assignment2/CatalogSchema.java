@@ -0,0 +1,120 @@
+package assignment2;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 统一商品表结构：把不同来源的 CSV 导出映射到 Assignment2_Data.csv 的列
+ * <p>
+ * 1) 列名：每个标准列有一组别名（不区分大小写），读表头时解析一次，
+ *    把标准列名加入列号表，之后每行 get("Title") 等直接命中，不做逐行转换
+ * 2) 取值：库存的 schema.org 写法（InStock / OutOfStock ...）转成标准写法；
+ *    全小写的品牌名首字母大写（usmile -> Usmile），与其它文件中的同一品牌归为一组
+ * 3) 价格：有 currency 列且不是 USD 时按 --fx 给出的汇率换算；没有汇率则原样保留并提示一次
+ */
+final class CatalogSchema {
+
+    // 标准列名 -> 别名（按优先级）
+    private static final String[][] COLUMNS = {
+            {"Brand", "brand"},
+            {"Model", "model"},
+            {"Title", "product_name", "name", "title"},
+            {"Description", "description"},
+            {"Price (USD)", "price", "price_min", "price_text"},
+            {"Rating (out of 5)", "rating_value", "rating"},
+            {"Availability", "availability"},
+            {"Battery_Type", "battery_type"},
+            {"Waterproof", "water_resistance", "waterproof"},
+            {"Currency", "currency"},
+    };
+
+    private static final Map<String, String> AVAILABILITY = new HashMap<>();
+
+    static {
+        AVAILABILITY.put("InStock", "In Stock");
+        AVAILABILITY.put("OutOfStock", "Out of Stock");
+        AVAILABILITY.put("SoldOut", "Out of Stock");
+        AVAILABILITY.put("LimitedAvailability", "Limited Edition");
+        AVAILABILITY.put("OnlineOnly", "Online Only");
+    }
+
+    // 货币 -> 1 单位折合多少 USD（--fx 设置）
+    private static final Map<String, Double> USD_RATE = new ConcurrentHashMap<>();
+    private static final Set<String> WARNED = ConcurrentHashMap.newKeySet();
+
+    private CatalogSchema() {
+    }
+
+    /** 在表头列号表上补齐标准列名；已经是标准表头时原样返回 */
+    static Map<String, Integer> canonical(Map<String, Integer> columns) {
+        Map<String, Integer> lower = new HashMap<>();
+        for (Map.Entry<String, Integer> e : columns.entrySet()) {
+            lower.putIfAbsent(e.getKey().trim().toLowerCase(Locale.ROOT), e.getValue());
+        }
+        Map<String, Integer> out = null;
+        for (String[] c : COLUMNS) {
+            if (columns.containsKey(c[0])) {
+                continue;
+            }
+            for (int i = 0; i < c.length; i++) {
+                Integer col = lower.get(c[i].toLowerCase(Locale.ROOT));
+                if (col != null) {
+                    if (out == null) {
+                        out = new HashMap<>(columns);
+                    }
+                    out.put(c[0], col);
+                    break;
+                }
+            }
+        }
+        return out == null ? columns : out;
+    }
+
+    static String brand(String b) {
+        if (b == null || b.isEmpty() || !b.equals(b.toLowerCase(Locale.ROOT))) {
+            return b;
+        }
+        return Character.toUpperCase(b.charAt(0)) + b.substring(1);
+    }
+
+    static String availability(String a) {
+        return a == null ? null : AVAILABILITY.getOrDefault(a.trim(), a);
+    }
+
+    /** 价格换算为 USD；货币为空或 USD 时原样返回 */
+    static double toUsd(double price, String currency) {
+        if (currency == null || currency.isEmpty() || "USD".equalsIgnoreCase(currency)) {
+            return price;
+        }
+        Double rate = USD_RATE.get(currency.toUpperCase(Locale.ROOT));
+        if (rate == null) {
+            if (WARNED.add(currency)) {
+                System.err.println("没有 " + currency + " 的汇率（--fx " + currency + "=...），价格按原值计");
+            }
+            return price;
+        }
+        return price * rate;
+    }
+
+    /** 解析 --fx "CAD=0.73,EUR=1.08" */
+    static void setRates(String spec) {
+        for (String part : spec.split(",")) {
+            String s = part.trim();
+            int eq = s.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("汇率格式应为 货币=USD汇率: " + s);
+            }
+            USD_RATE.put(s.substring(0, eq).trim().toUpperCase(Locale.ROOT),
+                    Double.parseDouble(s.substring(eq + 1).trim()));
+        }
+    }
+
+    /** 影响价格列的配置（供快照指纹使用）；没有设置汇率时为空串 */
+    static String fingerprint() {
+        return USD_RATE.isEmpty() ? "" : new TreeMap<>(USD_RATE).toString();
+    }
+}
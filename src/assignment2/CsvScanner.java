@@ -0,0 +1,255 @@
+package assignment2;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 流式 CSV 扫描器（内存映射 + 字段偏移）
+ * <p>
+ * 1) 按窗口 memory-map 文件，逐字节扫描一次，增量维护引号状态确定记录边界（支持引号内换行）
+ * 2) 每条记录整体拷贝到复用的 byte[]，字段只记录 [start, end) 偏移，按列号访问
+ * 3) 只有调用 get(col) 时才解码 UTF-8 并处理转义引号，生成 String
+ * <p>
+ * 解析语义与原先 BufferedReader 逐行读取 + 引号计数拼行的实现一致：
+ * - 记录以引号外的 \n、\r\n 或 \r 结束；空行是一条只有一个空字段的记录
+ * - 引号可出现在字段任意位置并切换引号状态，引号内 "" 表示一个 "
+ * - 引号内的 \r\n 与单独的 \r 都还原为 \n
+ * <p>
+ * 单条记录超过窗口大小时窗口自动翻倍；文件大小不受 2GB 映射上限约束。
+ */
+final class CsvScanner implements Closeable {
+
+    static final int DEFAULT_WINDOW = 64 << 20;
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private int windowSize;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private int windowLen;
+
+    private long pos;                       // 下一条记录在文件中的起点
+
+    private byte[] record = new byte[1024]; // 当前记录的字节拷贝
+    private int recordLen;
+    private int[] bounds = new int[32];     // 字段 i 为 [bounds[2i], bounds[2i+1])
+    private int fields;
+
+    private String[] header = new String[0];
+    private final Map<String, Integer> columns = new HashMap<>();
+
+    CsvScanner(Path p) throws IOException {
+        this(p, DEFAULT_WINDOW);
+    }
+
+    CsvScanner(Path p, int windowSize) throws IOException {
+        this.channel = FileChannel.open(p, StandardOpenOption.READ);
+        this.fileSize = channel.size();
+        this.windowSize = Math.max(1024, windowSize);
+        if (fileSize >= 3) {
+            map(0);
+            if (window.get(0) == (byte) 0xEF && window.get(1) == (byte) 0xBB && window.get(2) == (byte) 0xBF) {
+                pos = 3;    // 跳过 UTF-8 BOM
+            }
+        }
+        if (next()) {
+            header = new String[fields];
+            for (int i = 0; i < fields; i++) {
+                header[i] = get(i);
+                columns.put(header[i], i);   // 重名列后者覆盖，与原实现一致
+            }
+        }
+    }
+
+    /* ====================== 表头 ====================== */
+
+    String[] header() {
+        return header;
+    }
+
+    /** 表头列名 -> 列号（共享只读，CsvRow 直接引用） */
+    Map<String, Integer> columns() {
+        return columns;
+    }
+
+    /* ====================== 记录遍历 ====================== */
+
+    /** 前进到下一条记录；文件结束返回 false */
+    boolean next() throws IOException {
+        if (pos >= fileSize) {
+            return false;
+        }
+        while (true) {
+            if (pos < windowStart || pos >= windowStart + windowLen) {
+                map(pos);
+            }
+            int start = (int) (pos - windowStart);
+            int end = scanRecord(start);
+            if (end >= 0) {
+                return true;
+            }
+            // 记录跨越窗口末尾：从记录起点重新映射（必要时扩大窗口）后重扫
+            if (start == 0) {
+                windowSize = (int) Math.min(Integer.MAX_VALUE - 8, windowSize * 2L);
+            }
+            map(pos);
+        }
+    }
+
+    /** 第 col 个字段的 String（解码 + 去引号）；越界返回 "" */
+    String get(int col) {
+        if (col < 0 || col >= fields) {
+            return "";
+        }
+        return decode(record, bounds[2 * col], bounds[2 * col + 1]);
+    }
+
+    /** 当前记录的独立副本（字节 + 字段偏移），可交给其他线程按需解码 */
+    byte[] copyRecord() {
+        return Arrays.copyOf(record, recordLen);
+    }
+
+    int[] copyBounds() {
+        return Arrays.copyOf(bounds, 2 * fields);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /* ====================== 解码 ====================== */
+
+    /** 把 raw[start, end) 按 CSV 引号规则还原为 String（UTF-8） */
+    static String decode(byte[] raw, int start, int end) {
+        int i = start;
+        while (i < end && raw[i] != '"' && raw[i] != '\r') {
+            i++;
+        }
+        if (i == end) {
+            return new String(raw, start, end - start, StandardCharsets.UTF_8);
+        }
+        byte[] out = new byte[end - start];
+        int n = i - start;
+        System.arraycopy(raw, start, out, 0, n);
+        boolean inQ = false;
+        for (; i < end; i++) {
+            byte b = raw[i];
+            if (inQ) {
+                if (b == '"') {
+                    if (i + 1 < end && raw[i + 1] == '"') {
+                        out[n++] = '"';
+                        i++;
+                    } else {
+                        inQ = false;
+                    }
+                } else if (b == '\r') {
+                    out[n++] = '\n';
+                    if (i + 1 < end && raw[i + 1] == '\n') {
+                        i++;
+                    }
+                } else {
+                    out[n++] = b;
+                }
+            } else if (b == '"') {
+                inQ = true;
+            } else {
+                out[n++] = b;
+            }
+        }
+        return new String(out, 0, n, StandardCharsets.UTF_8);
+    }
+
+    /* ====================== 内部实现 ====================== */
+
+    private void map(long start) throws IOException {
+        windowStart = start;
+        windowLen = (int) Math.min(windowSize, fileSize - start);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, windowLen);
+    }
+
+    /**
+     * 从窗口内 start 处扫描一条记录：拷贝字节、切分字段并推进 pos。
+     * 记录在窗口内未结束（且文件还有后续内容）时返回 -1。
+     */
+    private int scanRecord(int start) {
+        boolean inQ = false;
+        int i = start;
+        int term = -1, after = -1;
+        for (; i < windowLen; i++) {
+            byte b = window.get(i);
+            if (b == '"') {
+                inQ = !inQ;
+            } else if (!inQ && (b == '\n' || b == '\r')) {
+                term = i;
+                after = i + 1;
+                if (b == '\r') {
+                    if (i + 1 < windowLen) {
+                        if (window.get(i + 1) == '\n') {
+                            after = i + 2;
+                        }
+                    } else if (windowStart + windowLen < fileSize) {
+                        return -1;   // \r 恰在窗口末尾，需确认后面是否紧跟 \n
+                    }
+                }
+                break;
+            }
+        }
+        if (term < 0) {
+            if (windowStart + windowLen < fileSize) {
+                return -1;
+            }
+            term = after = windowLen;   // 文件末尾，未闭合的引号也在此结束
+            if (inQ && term > start && window.get(term - 1) == '\n') {
+                term--;                 // 与 readLine 一致：末尾的行结束符不属于记录
+            }
+            if (inQ && term > start && window.get(term - 1) == '\r') {
+                term--;
+            }
+        }
+
+        recordLen = term - start;
+        if (record.length < recordLen) {
+            record = new byte[Math.max(recordLen, record.length * 2)];
+        }
+        window.get(start, record, 0, recordLen);
+        splitFields();
+        pos = windowStart + after;
+        return term;
+    }
+
+    // 在记录副本上按引号外的逗号切分字段（引号奇偶即引号状态）
+    private void splitFields() {
+        fields = 0;
+        int fieldStart = 0;
+        boolean inQ = false;
+        for (int i = 0; i < recordLen; i++) {
+            byte b = record[i];
+            if (b == '"') {
+                inQ = !inQ;
+            } else if (b == ',' && !inQ) {
+                addField(fieldStart, i);
+                fieldStart = i + 1;
+            }
+        }
+        addField(fieldStart, recordLen);
+    }
+
+    private void addField(int start, int end) {
+        if (2 * fields + 1 >= bounds.length) {
+            bounds = Arrays.copyOf(bounds, bounds.length * 2);
+        }
+        bounds[2 * fields] = start;
+        bounds[2 * fields + 1] = end;
+        fields++;
+    }
+}
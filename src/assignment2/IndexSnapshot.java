@@ -0,0 +1,396 @@
+package assignment2;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * 二进制索引快照：把建好的 ProductTable + InvertedIndex 写成一个文件，下次启动直接 memory-map 恢复
+ * <p>
+ * 1) 内容：词典 / 品牌 / 属性原文字典、各列（字典编码、正排 CSR、价格评分等特征、短语分）、
+ *    品牌中位价、字符串区与倒排 postings；全部小端序原生数组，恢复时按块批量拷贝，不再分词
+ * 2) 头部记录 CSV 的大小、修改时间与 CRC32C，以及配置指纹（中位价模式 / 精度、短语表）：
+ *    大小与修改时间都一致时直接信任；修改时间变了则重算 CSV 的 CRC32C，内容变了才判定过期
+ * 3) 正文有 CRC32C 校验，文件截断或损坏时同样判定不可用；调用方随后从 CSV 重建并覆盖
+ * 4) 先写临时文件再原子替换，读者不会看到写了一半的快照
+ * <p>
+ * 词级分依赖的权重表不在快照中，恢复后照常按当前权重从 postings 计算。
+ */
+final class IndexSnapshot {
+
+    private static final int MAGIC = 0x50524B53;    // "PRKS"
+    private static final int VERSION = 1;
+    private static final int HEADER = 64;
+    private static final int WINDOW = 256 << 20;
+
+    private IndexSnapshot() {
+    }
+
+    /** 快照所对应的 CSV 状态 */
+    static final class Source {
+        final long size, modified, crc;
+
+        Source(long size, long modified, long crc) {
+            this.size = size;
+            this.modified = modified;
+            this.crc = crc;
+        }
+    }
+
+    static Source source(Path csv) throws IOException {
+        return new Source(Files.size(csv), Files.getLastModifiedTime(csv).toMillis(), crcOf(csv));
+    }
+
+    /** 影响快照内容的配置：中位价模式与精度、短语表（短语分已预先算入快照）、词项归一化、汇率 */
+    static long config(BrandMedians medians, PhraseMatcher phrases, TermNormalizer normalizer) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(medians.mode()).append(':').append(medians.sketchK());
+        if (!normalizer.identity()) {
+            sb.append("|norm:").append(normalizer.fingerprint());   // 不归一化时指纹不变，旧快照仍可用
+        }
+        String fx = CatalogSchema.fingerprint();
+        if (!fx.isEmpty()) {
+            sb.append("|fx:").append(fx);
+        }
+        for (int i = 0; i < phrases.size(); i++) {
+            sb.append('|').append(phrases.phrase(i)).append('=').append(phrases.weight(i));
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(sb.toString().getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    /* ====================== 写快照 ====================== */
+
+    static void write(Path snapshot, Source src, long config, InvertedIndex index, ProductTable t)
+            throws IOException {
+        Path tmp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ch.position(HEADER);
+            Out out = new Out(ch);
+            writeBody(out, index, t);
+            out.flush();
+
+            ByteBuffer h = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            h.putInt(MAGIC).putInt(VERSION)
+                    .putLong(src.size).putLong(src.modified).putLong(src.crc)
+                    .putLong(config).putLong(out.length).putLong(out.crc.getValue());
+            h.clear();
+            ch.position(0);
+            while (h.hasRemaining()) {
+                ch.write(h);
+            }
+        }
+        try {
+            Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void writeBody(Out out, InvertedIndex index, ProductTable t) throws IOException {
+        strings(out, t.dict);
+        strings(out, t.brands);
+        strings(out, t.labels);
+
+        int n = t.size(), postings = t.postings();
+        out.putInt(n);
+        out.putInt(postings);
+        out.ints(t.brand, n);
+        out.ints(t.availability, n);
+        out.ints(t.battery, n);
+        out.ints(t.waterproof, n);
+        out.ints(t.title, n);
+        out.ints(t.model, n);
+        out.ints(t.description, n);
+        out.ints(t.totalTerms, n);
+        out.ints(t.termStart, n + 1);
+        out.ints(t.termIds, postings);
+        out.ints(t.termFreqs, postings);
+        out.doubles(t.phrase, n);
+
+        ProductFeatures f = t.features;
+        out.doubles(f.price, n);
+        out.doubles(f.rating, n);
+        out.doubles(f.ratingNorm, n);
+        out.doubles(f.extra, n);
+        out.bytes(f.battery, n);
+        out.bytes(f.water, n);
+        out.bytes(f.avail, n);
+
+        out.putInt(t.brandMedian.length);
+        out.doubles(t.brandMedian, t.brandMedian.length);
+
+        t.text.writeTo(out);
+        index.writeTo(out);
+    }
+
+    private static void strings(Out out, TermDictionary d) throws IOException {
+        out.putInt(d.size());
+        for (int i = 0; i < d.size(); i++) {
+            byte[] b = d.term(i).getBytes(StandardCharsets.UTF_8);
+            out.putInt(b.length);
+            out.bytes(b, b.length);
+        }
+    }
+
+    /* ====================== 读快照 ====================== */
+
+    /**
+     * 校验并恢复到空的 index / table（二者共享同一词典）。
+     * 成功返回 null；快照缺失、过期、配置不符或损坏时返回原因，index / table 保持不变。
+     */
+    static String load(Path snapshot, Path csv, long config, InvertedIndex index, ProductTable t)
+            throws IOException {
+        if (!Files.isRegularFile(snapshot)) {
+            return "快照不存在";
+        }
+        try (FileChannel ch = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            long fileSize = ch.size();
+            if (fileSize < HEADER) {
+                return "快照已损坏";
+            }
+            ByteBuffer h = ch.map(FileChannel.MapMode.READ_ONLY, 0, HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            if (h.getInt() != MAGIC || h.getInt() != VERSION) {
+                return "快照格式版本不符";
+            }
+            long csvSize = h.getLong(), csvModified = h.getLong(), csvCrc = h.getLong();
+            if (h.getLong() != config) {
+                return "配置已变化";
+            }
+            long bodyLength = h.getLong(), bodyCrc = h.getLong();
+
+            if (Files.size(csv) != csvSize) {
+                return "CSV 已变化";
+            }
+            if (Files.getLastModifiedTime(csv).toMillis() != csvModified && crcOf(csv) != csvCrc) {
+                return "CSV 已变化";
+            }
+            if (fileSize != HEADER + bodyLength || crc(ch, HEADER, fileSize) != bodyCrc) {
+                return "快照已损坏";
+            }
+            readBody(new In(ch, HEADER, fileSize), index, t);
+            return null;
+        }
+    }
+
+    private static void readBody(In in, InvertedIndex index, ProductTable t) throws IOException {
+        strings(in, t.dict);
+        strings(in, t.brands);
+        strings(in, t.labels);
+
+        int n = in.getInt(), postings = in.getInt();
+        t.resize(n, postings);
+        in.ints(t.brand, n);
+        in.ints(t.availability, n);
+        in.ints(t.battery, n);
+        in.ints(t.waterproof, n);
+        in.ints(t.title, n);
+        in.ints(t.model, n);
+        in.ints(t.description, n);
+        in.ints(t.totalTerms, n);
+        in.ints(t.termStart, n + 1);
+        in.ints(t.termIds, postings);
+        in.ints(t.termFreqs, postings);
+        in.doubles(t.phrase, n);
+
+        ProductFeatures f = t.features;
+        in.doubles(f.price, n);
+        in.doubles(f.rating, n);
+        in.doubles(f.ratingNorm, n);
+        in.doubles(f.extra, n);
+        in.bytes(f.battery, n);
+        in.bytes(f.water, n);
+        in.bytes(f.avail, n);
+
+        t.brandMedian = new double[in.getInt()];
+        in.doubles(t.brandMedian, t.brandMedian.length);
+
+        t.text.readFrom(in);
+        index.readFrom(in);
+    }
+
+    private static void strings(In in, TermDictionary d) throws IOException {
+        int count = in.getInt();
+        byte[] b = new byte[64];
+        for (int i = 0; i < count; i++) {
+            int len = in.getInt();
+            if (b.length < len) {
+                b = new byte[Math.max(len, b.length * 2)];
+            }
+            in.bytes(b, len);
+            d.intern(new String(b, 0, len, StandardCharsets.UTF_8));
+        }
+    }
+
+    /* ====================== 校验和 ====================== */
+
+    static long crcOf(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            return crc(ch, 0, ch.size());
+        }
+    }
+
+    private static long crc(FileChannel ch, long from, long to) throws IOException {
+        CRC32C crc = new CRC32C();
+        for (long pos = from; pos < to; pos += WINDOW) {
+            crc.update(ch.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(WINDOW, to - pos)));
+        }
+        return crc.getValue();
+    }
+
+    /* ====================== 顺序写 / 顺序读 ====================== */
+
+    /** 经 1MB 缓冲顺序写出，同时累计正文长度与 CRC32C */
+    static final class Out {
+        private final FileChannel ch;
+        private final ByteBuffer buf = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        final CRC32C crc = new CRC32C();
+        long length;
+
+        Out(FileChannel ch) {
+            this.ch = ch;
+        }
+
+        void putInt(int v) throws IOException {
+            ensure(4);
+            buf.putInt(v);
+        }
+
+        void ints(int[] a, int n) throws IOException {
+            for (int off = 0; off < n; ) {
+                ensure(4);
+                int cnt = Math.min(n - off, buf.remaining() / 4);
+                buf.asIntBuffer().put(a, off, cnt);
+                buf.position(buf.position() + cnt * 4);
+                off += cnt;
+            }
+        }
+
+        void longs(long[] a, int n) throws IOException {
+            for (int off = 0; off < n; ) {
+                ensure(8);
+                int cnt = Math.min(n - off, buf.remaining() / 8);
+                buf.asLongBuffer().put(a, off, cnt);
+                buf.position(buf.position() + cnt * 8);
+                off += cnt;
+            }
+        }
+
+        void doubles(double[] a, int n) throws IOException {
+            for (int off = 0; off < n; ) {
+                ensure(8);
+                int cnt = Math.min(n - off, buf.remaining() / 8);
+                buf.asDoubleBuffer().put(a, off, cnt);
+                buf.position(buf.position() + cnt * 8);
+                off += cnt;
+            }
+        }
+
+        void bytes(byte[] a, int n) throws IOException {
+            for (int off = 0; off < n; ) {
+                ensure(1);
+                int cnt = Math.min(n - off, buf.remaining());
+                buf.put(a, off, cnt);
+                off += cnt;
+            }
+        }
+
+        void flush() throws IOException {
+            buf.flip();
+            crc.update(buf.duplicate());
+            length += buf.remaining();
+            while (buf.hasRemaining()) {
+                ch.write(buf);
+            }
+            buf.clear();
+        }
+
+        private void ensure(int k) throws IOException {
+            if (buf.remaining() < k) {
+                flush();
+            }
+        }
+    }
+
+    /** 按窗口 memory-map 顺序读取（文件大小不受 2GB 映射上限约束） */
+    static final class In {
+        private final FileChannel ch;
+        private final long end;
+        private long base;
+        private MappedByteBuffer buf;
+
+        In(FileChannel ch, long start, long end) throws IOException {
+            this.ch = ch;
+            this.end = end;
+            map(start);
+        }
+
+        int getInt() throws IOException {
+            ensure(4);
+            return buf.getInt();
+        }
+
+        void ints(int[] a, int n) throws IOException {
+            for (int off = 0; off < n; ) {
+                ensure(4);
+                int cnt = Math.min(n - off, buf.remaining() / 4);
+                buf.asIntBuffer().get(a, off, cnt);
+                buf.position(buf.position() + cnt * 4);
+                off += cnt;
+            }
+        }
+
+        void longs(long[] a, int n) throws IOException {
+            for (int off = 0; off < n; ) {
+                ensure(8);
+                int cnt = Math.min(n - off, buf.remaining() / 8);
+                buf.asLongBuffer().get(a, off, cnt);
+                buf.position(buf.position() + cnt * 8);
+                off += cnt;
+            }
+        }
+
+        void doubles(double[] a, int n) throws IOException {
+            for (int off = 0; off < n; ) {
+                ensure(8);
+                int cnt = Math.min(n - off, buf.remaining() / 8);
+                buf.asDoubleBuffer().get(a, off, cnt);
+                buf.position(buf.position() + cnt * 8);
+                off += cnt;
+            }
+        }
+
+        void bytes(byte[] a, int n) throws IOException {
+            for (int off = 0; off < n; ) {
+                ensure(1);
+                int cnt = Math.min(n - off, buf.remaining());
+                buf.get(a, off, cnt);
+                off += cnt;
+            }
+        }
+
+        // 当前窗口剩余不足 k 字节时，从当前位置重新映射
+        private void ensure(int k) throws IOException {
+            if (buf.remaining() < k) {
+                map(base + buf.position());
+            }
+        }
+
+        private void map(long pos) throws IOException {
+            base = pos;
+            buf = ch.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(WINDOW, end - pos));
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package assignment2;
+
+import java.util.Arrays;
+
+/**
+ * 原生 int -> int 开放寻址哈希表（线性探测），用于 termId -> 词频计数
+ * <p>
+ * 键必须 >= 0（termId）；不存在的键 get 返回 0。
+ * 迭代按槽位进行：for (slot < capacity()) if (occupied(slot)) keyAt(slot) / valueAt(slot)。
+ */
+final class IntIntMap {
+
+    private static final int EMPTY = -1;
+
+    private int[] keys;
+    private int[] vals;
+    private int size;
+
+    IntIntMap() {
+        this(8);
+    }
+
+    IntIntMap(int expected) {
+        int cap = Integer.highestOneBit(Math.max(4, expected) * 2 - 1) << 1;
+        keys = new int[cap];
+        vals = new int[cap];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    void increment(int key) {
+        add(key, 1);
+    }
+
+    void add(int key, int delta) {
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) {
+                vals[i] += delta;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        vals[i] = delta;
+        if (++size * 2 > keys.length) {   // 负载因子 0.5
+            resize();
+        }
+    }
+
+    int get(int key) {
+        int mask = keys.length - 1;
+        for (int i = slot(key, mask); keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return vals[i];
+            }
+        }
+        return 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** 所有值之和（即总词数） */
+    int sum() {
+        int s = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                s += vals[i];
+            }
+        }
+        return s;
+    }
+
+    void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    /* ====================== 按槽位迭代 ====================== */
+
+    int capacity() {
+        return keys.length;
+    }
+
+    boolean occupied(int slot) {
+        return keys[slot] != EMPTY;
+    }
+
+    int keyAt(int slot) {
+        return keys[slot];
+    }
+
+    int valueAt(int slot) {
+        return vals[slot];
+    }
+
+    /* ====================== 内部实现 ====================== */
+
+    private static int slot(int key, int mask) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private void resize() {
+        int[] oldKeys = keys, oldVals = vals;
+        keys = new int[oldKeys.length * 2];
+        vals = new int[oldVals.length * 2];
+        Arrays.fill(keys, EMPTY);
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] == EMPTY) {
+                continue;
+            }
+            int i = slot(oldKeys[j], mask);
+            while (keys[i] != EMPTY) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = oldKeys[j];
+            vals[i] = oldVals[j];
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package assignment2;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * 全局倒排索引：termId -> postings[(docId, freq)]
+ * <p>
+ * 1) 每个词项一条 postings，按 docId 递增追加（文档按顺序加入）
+ * 2) docLength[docId] 记录该文档的总词数（归一化用）
+ * 3) 打分时只遍历权重表中非零词项的 postings，代价与"加权词表"规模相关，而与语料规模无关
+ */
+final class InvertedIndex {
+
+    private static final int INITIAL_POSTINGS = 4;
+
+    final TermDictionary dict;
+
+    private int[][] docs = new int[16][];    // docs[termId]  = 文档 id 列表
+    private int[][] freqs = new int[16][];   // freqs[termId] = 对应词频
+    private int[] df = new int[16];          // df[termId]    = postings 长度（文档频率）
+
+    private int[] docLength = new int[16];
+    private int numDocs;
+
+    InvertedIndex() {
+        this(new TermDictionary());
+    }
+
+    InvertedIndex(TermDictionary dict) {
+        this.dict = dict;
+    }
+
+    /* ====================== 建索引 ====================== */
+
+    /** 把正排表中 [from, to) 区间的 (termId, freq) 作为新文档加入索引，返回分配的 docId */
+    int addDocument(int[] termIds, int[] freqs, int from, int to) {
+        int doc = newDocument();
+        for (int i = from; i < to; i++) {
+            addPosting(doc, termIds[i], freqs[i]);
+        }
+        return doc;
+    }
+
+    /** 分配一个空文档，随后用 addPosting 逐个词项填充 */
+    int newDocument() {
+        if (numDocs == docLength.length) {
+            docLength = Arrays.copyOf(docLength, numDocs * 2);
+        }
+        return numDocs++;
+    }
+
+    void addPosting(int doc, int termId, int freq) {
+        ensureTerm(termId);
+        int n = df[termId];
+        int[] d = docs[termId];
+        if (d == null) {
+            d = docs[termId] = new int[INITIAL_POSTINGS];
+            freqs[termId] = new int[INITIAL_POSTINGS];
+        } else if (n == d.length) {
+            d = docs[termId] = Arrays.copyOf(d, n * 2);
+            freqs[termId] = Arrays.copyOf(freqs[termId], n * 2);
+        }
+        d[n] = doc;
+        freqs[termId][n] = freq;
+        df[termId] = n + 1;
+        docLength[doc] += freq;
+    }
+
+    private void ensureTerm(int termId) {
+        if (termId < docs.length) {
+            return;
+        }
+        int cap = Math.max(docs.length * 2, termId + 1);
+        docs = Arrays.copyOf(docs, cap);
+        freqs = Arrays.copyOf(freqs, cap);
+        df = Arrays.copyOf(df, cap);
+    }
+
+    /* ====================== 快照读写 ====================== */
+
+    void writeTo(IndexSnapshot.Out out) throws IOException {
+        out.putInt(numDocs);
+        out.ints(docLength, numDocs);
+        int terms = dict.size();
+        out.putInt(terms);
+        for (int t = 0; t < terms; t++) {
+            int n = docFreq(t);
+            out.putInt(n);
+            if (n > 0) {
+                out.ints(docs[t], n);
+                out.ints(freqs[t], n);
+            }
+        }
+    }
+
+    /** 用快照内容替换当前 postings（词典由调用方先行恢复） */
+    void readFrom(IndexSnapshot.In in) throws IOException {
+        numDocs = in.getInt();
+        docLength = new int[Math.max(16, numDocs)];
+        in.ints(docLength, numDocs);
+        int terms = in.getInt();
+        docs = new int[Math.max(16, terms)][];
+        freqs = new int[docs.length][];
+        df = new int[docs.length];
+        for (int t = 0; t < terms; t++) {
+            int n = in.getInt();
+            df[t] = n;
+            if (n > 0) {
+                docs[t] = new int[n];
+                freqs[t] = new int[n];
+                in.ints(docs[t], n);
+                in.ints(freqs[t], n);
+            }
+        }
+    }
+
+    /* ====================== 查询 ====================== */
+
+    int numDocs() {
+        return numDocs;
+    }
+
+    int docLength(int doc) {
+        return docLength[doc];
+    }
+
+    int docFreq(int termId) {
+        return termId < df.length ? df[termId] : 0;
+    }
+
+    /** termId 的 postings 文档列表（内部数组，只读；有效长度为 docFreq） */
+    int[] postingDocs(int termId) {
+        return docs[termId];
+    }
+
+    int[] postingFreqs(int termId) {
+        return freqs[termId];
+    }
+
+    /**
+     * 词级分（所有文档一次算完）：Σ tf(word) * weight(word)，可选再除以 log(2+总词数)
+     * <p>
+     * 只访问 weight != 0 的词项的 postings；整数乘积累加，结果与逐文档遍历 AVL 树完全一致。
+     */
+    double[] wordScores(Map<String, Integer> wordW, boolean normalize) {
+        double[] s = new double[numDocs];
+        for (Map.Entry<String, Integer> e : wordW.entrySet()) {
+            int w = e.getValue();
+            int t = dict.id(e.getKey());
+            if (w == 0 || t < 0 || t >= df.length) {
+                continue;
+            }
+            int[] d = docs[t], f = freqs[t];
+            for (int i = 0, n = df[t]; i < n; i++) {
+                s[d[i]] += w * f[i];
+            }
+        }
+        if (normalize) {
+            for (int doc = 0; doc < numDocs; doc++) {
+                if (docLength[doc] > 0) {
+                    s[doc] /= Math.log(2 + docLength[doc]);
+                }
+            }
+        }
+        return s;
+    }
+}
@@ -0,0 +1,181 @@
+package assignment2;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * KLL 分位数草图（近似中位数 / 分位数）
+ * <p>
+ * 1) 多层压缩器：第 h 层每个元素代表 2^h 个原始值；高层容量大、低层容量按 (2/3)^深度 递减
+ * 2) 某层满了就排序后隔一个取一个（起点随机）提升到上一层，该层清空
+ * 3) 总内存约 3k 个 double，秩误差约 O(1/k)：k = 200 时通常在 1% 以内
+ * 4) 可合并：逐层拼接后再压缩，用于多线程 / 多分片汇总（writeTo / readFrom 用于跨进程交换）
+ * <p>
+ * 未发生压缩之前（样本数不超过容量）结果是精确的。随机源固定种子，同样输入得到同样结果。
+ */
+final class KllSketch {
+
+    private static final double C = 2.0 / 3.0;
+
+    private final int k;
+    private final Random coin = new Random(0x6B6C6CL);
+
+    private double[][] levels = new double[1][];
+    private int[] sizes = new int[1];
+    private int numLevels = 1;
+    private long n;
+
+    KllSketch(int k) {
+        this.k = Math.max(8, k);
+        levels[0] = new double[this.k];
+    }
+
+    void add(double x) {
+        append(0, x);
+        n++;
+        compressIfFull();
+    }
+
+    void merge(KllSketch other) {
+        while (numLevels < other.numLevels) {
+            addLevel();
+        }
+        for (int h = 0; h < other.numLevels; h++) {
+            for (int i = 0; i < other.sizes[h]; i++) {
+                append(h, other.levels[h][i]);
+            }
+        }
+        n += other.n;
+        compressIfFull();
+    }
+
+    long count() {
+        return n;
+    }
+
+    /** 近似的第 rank 小（0 起）的值；rank 超界时取端点 */
+    double valueAtRank(long rank) {
+        int items = 0;
+        for (int h = 0; h < numLevels; h++) {
+            items += sizes[h];
+        }
+        if (items == 0) {
+            return Double.NaN;
+        }
+        // (值, 权重) 按值排序后累加权重
+        double[] vals = new double[items];
+        int[] level = new int[items];
+        int j = 0;
+        for (int h = 0; h < numLevels; h++) {
+            for (int i = 0; i < sizes[h]; i++) {
+                vals[j] = levels[h][i];
+                level[j] = h;
+                j++;
+            }
+        }
+        Integer[] order = new Integer[items];
+        for (int i = 0; i < items; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(vals[a], vals[b]));
+        long cum = 0;
+        for (int i = 0; i < items; i++) {
+            int idx = order[i];
+            cum += 1L << level[idx];
+            if (cum > rank) {
+                return vals[idx];
+            }
+        }
+        return vals[order[items - 1]];
+    }
+
+    /* ====================== 序列化 ====================== */
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(k);
+        out.writeLong(n);
+        out.writeInt(numLevels);
+        for (int h = 0; h < numLevels; h++) {
+            out.writeInt(sizes[h]);
+            for (int i = 0; i < sizes[h]; i++) {
+                out.writeDouble(levels[h][i]);
+            }
+        }
+    }
+
+    static KllSketch readFrom(DataInput in) throws IOException {
+        KllSketch s = new KllSketch(in.readInt());
+        s.n = in.readLong();
+        int levels = in.readInt();
+        while (s.numLevels < levels) {
+            s.addLevel();
+        }
+        for (int h = 0; h < levels; h++) {
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                s.append(h, in.readDouble());
+            }
+        }
+        return s;
+    }
+
+    /* ====================== 内部实现 ====================== */
+
+    private int capacity(int h) {
+        return Math.max(2, (int) Math.ceil(k * Math.pow(C, numLevels - h - 1)));
+    }
+
+    private void append(int h, double x) {
+        if (sizes[h] == levels[h].length) {
+            levels[h] = Arrays.copyOf(levels[h], Math.max(4, sizes[h] * 2));
+        }
+        levels[h][sizes[h]++] = x;
+    }
+
+    private void addLevel() {
+        levels = Arrays.copyOf(levels, numLevels + 1);
+        sizes = Arrays.copyOf(sizes, numLevels + 1);
+        levels[numLevels] = new double[4];
+        numLevels++;
+    }
+
+    private void compressIfFull() {
+        while (true) {
+            int total = 0, cap = 0;
+            for (int h = 0; h < numLevels; h++) {
+                total += sizes[h];
+                cap += capacity(h);
+            }
+            if (total < cap) {
+                return;
+            }
+            for (int h = 0; h < numLevels; h++) {
+                if (sizes[h] >= capacity(h)) {
+                    compact(h);
+                    break;
+                }
+            }
+        }
+    }
+
+    // 第 h 层排序后隔一个提升到 h+1 层；奇数个时留下最大的一个
+    private void compact(int h) {
+        if (h + 1 == numLevels) {
+            addLevel();
+        }
+        double[] lv = levels[h];
+        int m = sizes[h];
+        Arrays.sort(lv, 0, m);
+        int even = m & ~1;
+        for (int i = coin.nextBoolean() ? 1 : 0; i < even; i += 2) {
+            append(h + 1, lv[i]);
+        }
+        if (even < m) {
+            lv[0] = lv[m - 1];
+        }
+        sizes[h] = m - even;
+    }
+}
@@ -0,0 +1,59 @@
+package assignment2;
+
+import java.util.Arrays;
+
+/**
+ * 全局 Top-N + 品牌内 Top-M 排行榜
+ * <p>
+ * 单次遍历即可收集；内存 O(N + M × 品牌数)。
+ * 品牌按编码（ProductTable.brands，即首次出现的顺序）存放在数组中，无需按名称查表。
+ */
+final class Leaderboard {
+
+    final TopK global;
+    private TopK[] brands = new TopK[8];    // 下标为品牌编码；没有商品的品牌为 null
+    private int brandCount;
+    private final int brandTop;
+
+    Leaderboard(int topN, int brandTop) {
+        this.global = new TopK(topN);
+        this.brandTop = brandTop;
+    }
+
+    void offer(int doc, double score, int brand) {
+        global.offer(doc, score);
+        brandBoard(brand).offer(doc, score);
+    }
+
+    /** 合并另一份部分结果 */
+    void merge(Leaderboard other) {
+        global.merge(other.global);
+        for (int b = 0; b < other.brandCount; b++) {
+            if (other.brands[b] != null) {
+                brandBoard(b).merge(other.brands[b]);
+            }
+        }
+    }
+
+    /** 品牌编码上界（不含） */
+    int brandCount() {
+        return brandCount;
+    }
+
+    /** 品牌内排行；该品牌没有商品时为 null */
+    TopK brand(int code) {
+        return code < brandCount ? brands[code] : null;
+    }
+
+    private TopK brandBoard(int code) {
+        if (code >= brands.length) {
+            brands = Arrays.copyOf(brands, Math.max(code + 1, brands.length * 2));
+        }
+        brandCount = Math.max(brandCount, code + 1);
+        TopK t = brands[code];
+        if (t == null) {
+            t = brands[code] = new TopK(brandTop);
+        }
+        return t;
+    }
+}
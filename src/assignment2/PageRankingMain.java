@@ -1,21 +1,35 @@
 package assignment2;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.Consumer;
 
 /**
  * Assignment2 - Task5 Page Ranking
  * <p>
- * 1) 使用 AVL 树统计词频（平衡搜索树）
- * 2) 使用 QuickSort 输出每个页面（商品）的关键词 Top-K
- * 3) 使用最大堆（PriorityQueue）输出全局 Top-N 与品牌内 Top-M
+ * 1) 统计词频后汇入全局倒排索引（InvertedIndex）做词级打分
+ *    - intern 模式（默认）：TermIdTokenizer 直接映射为 termId，计入原生 IntIntMap
+ *    - avl 模式（--tokenizer avl）：原有的 String 分词 + AVL 树，保留用于对比
+ * 2) 输出每个页面（商品）的关键词 Top-K：直接在词频正排表上用有界堆取前 K 个（ProductTable.topTerms），不做全量排序
+ * 3) 使用有界最小堆（TopK）单次遍历收集全局 Top-N 与品牌内 Top-M
+ * 4) 读取 / 分词 / 打分由 RankingPipeline 分块并行执行（--threads N，--chunk 行数），
+ *    商品存入列式的 ProductTable（原生数组列 + 字典编码 + 字符串区），Product 只作为临时 / 输出对象
+ * 5) 品牌中位价流式累加：--median exact（默认，quickselect）或 approx（KLL 草图，--median-k 控制精度）
+ * 6) --deltas 文件：结果装入常驻的 RankingEngine，按行增 / 改 / 删后只重算受影响的商品
+ * 7) --snapshot [文件]：索引快照（默认 CSV 同名 .snap），CSV 未变时直接映射恢复，跳过读取与分词
+ * 8) --sweep 权重向量（文件或 "wText,wRate,wPrice,wExtra;..."）：分量只算一次，WeightSweep 批量重排
+ * 9) --query "自由文本"（多个查询用 ; 分隔）：QueryRanker 按 BM25 + 评分 / 价格 / 加成排序，WAND 提前终止
+ *    （--wand false 改为逐文档穷举，用于对照）
+ * 10) --normalize none|stem|synonym|full：词项归一化（Porter 词干 + 同义词，--synonyms 文件可替换内置同义词表），
+ *    按原始 token 缓存；分词、关键词权重、查询词与增量更新都经过同一归一化
+ * 11) --csv a.csv,b.csv,...：多文件分片（ShardedRanking），各文件列名经 CatalogSchema 映射到统一结构，
+ *    分片并行排序后合并品牌价格与 Top-K 部分结果，与拼接成单文件运行的结果一致；
+ *    --exchange 目录：部分结果经文件交换；--fx CAD=0.73,...：非 USD 价格的换算汇率
+ * 12) --explain 文件：打分明细（每个商品的词 / 短语 / 评分 / 价格因子 / 加成 / 中位价 / 得分），
+ *    .jsonl 结尾写 JSONL，否则写二进制列存（ScoreExplain）
  * <p>
  * CSV 列数据结构
  * Brand,Model,Title,Description,Price (USD),Rating (out of 5),Availability,Battery_Type,Waterproof
@@ -28,8 +42,10 @@ public class PageRankingMain {
         double price, rating;
         String availability, batteryType, waterproof;
         String corpus;       // 语料（Title + Description + Battery + Waterproof）
-        AVLTree tf;          // AVL 词频树
+        AVLTree tf;          // AVL 词频树（avl 分词模式）
+        IntIntMap termFreq;  // termId -> 词频（intern 分词模式）
         int totalTerms;      // 词总数（归一化用）
+        int docId;           // 倒排索引中的文档 id
         double score;        // 综合得分
     }
 
@@ -119,21 +135,6 @@ public class PageRankingMain {
             return y;
         }
 
-        List<Map.Entry<String, Integer>> toList() {
-            List<Map.Entry<String, Integer>> out = new ArrayList<>();
-            inorder(root, out);
-            return out;
-        }
-
-        private void inorder(AVLNode n, List<Map.Entry<String, Integer>> out) {
-            if (n == null) {
-                return;
-            }
-            inorder(n.left, out);
-            out.add(new AbstractMap.SimpleEntry<>(n.key, n.freq));
-            inorder(n.right, out);
-        }
-
         int sumFreq() {
             return sum(root);
         }
@@ -146,42 +147,6 @@ public class PageRankingMain {
         }
     }
 
-    /* ====================== QuickSort（按频次降序） ====================== */
-    static class Sorts {
-        static void quickSortByFreqDesc(List<Map.Entry<String, Integer>> a) {
-            if (a == null || a.size() <= 1) {
-                return;
-            }
-            qs(a, 0, a.size() - 1);
-        }
-
-        private static void qs(List<Map.Entry<String, Integer>> a, int l, int r) {
-            if (l >= r) {
-                return;
-            }
-            int i = l, j = r, pivot = a.get((l + r) >>> 1).getValue();
-            while (i <= j) {
-                while (a.get(i).getValue() > pivot) {
-                    i++;
-                }
-                while (a.get(j).getValue() < pivot) {
-                    j--;
-                }
-                if (i <= j) {
-                    Collections.swap(a, i, j);
-                    i++;
-                    j--;
-                }
-            }
-            if (l < j) {
-                qs(a, l, j);
-            }
-            if (i < r) {
-                qs(a, i, r);
-            }
-        }
-    }
-
     /* ====================== 关键词体系（v3.0） ====================== */
     // 单词级权重（用于 AVL 词频累加 Σ tf * w）
     static Map<String, Integer> buildWordWeights() {
@@ -217,7 +182,7 @@ public class PageRankingMain {
         }
     }
 
-    // 短语级权重（直接在全文中用 contains / 计数）
+    // 短语级权重（构建一次 PhraseMatcher，在全文中单次扫描计数）
     static Map<String, Integer> buildPhraseWeights() {
         Map<String, Integer> p = new LinkedHashMap<>();
         p.put("gum care", 3);
@@ -247,94 +212,97 @@ public class PageRankingMain {
     ));
 
     /* ====================== CSV 读取（支持引号与换行） ====================== */
+    // 一行记录：原始字节 + 字段偏移，按列名取值时才解码（解码结果缓存）
     static class CsvRow {
-        Map<String, String> map = new HashMap<>();
+        final Map<String, Integer> columns;   // 表头列名 -> 列号（所有行共享）
+        final byte[] raw;
+        final int[] bounds;
+        private final String[] cells;
+
+        CsvRow(Map<String, Integer> columns, byte[] raw, int[] bounds) {
+            this.columns = columns;
+            this.raw = raw;
+            this.bounds = bounds;
+            this.cells = new String[bounds.length / 2];
+        }
 
         String get(String k) {
-            return map.getOrDefault(k, "");
+            Integer i = columns.get(k);
+            if (i == null || i >= cells.length) {
+                return "";
+            }
+            if (cells[i] == null) {
+                cells[i] = CsvScanner.decode(raw, bounds[2 * i], bounds[2 * i + 1]);
+            }
+            return cells[i];
         }
     }
 
     static List<CsvRow> readCsv(Path p) throws IOException {
         List<CsvRow> rows = new ArrayList<>();
-        try (BufferedReader br = Files.newBufferedReader(p, StandardCharsets.UTF_8)) {
-            String header = br.readLine();
-            if (header == null) {
-                return rows;
-            }
-            List<String> heads = parseCsvLine(header);
-
-            String line;
-            while ((line = br.readLine()) != null) {
-                // 处理多行引号字段
-                while (countQuotes(line) % 2 != 0) {
-                    String next = br.readLine();
-                    if (next == null) {
-                        break;
-                    }
-                    line += "\n" + next;
-                }
-                List<String> cells = parseCsvLine(line);
-                CsvRow r = new CsvRow();
-                for (int i = 0; i < heads.size(); i++) {
-                    String key = heads.get(i);
-                    String val = i < cells.size() ? cells.get(i) : "";
-                    r.map.put(key, val);
-                }
-                rows.add(r);
-            }
-        }
+        readCsvChunks(p, Integer.MAX_VALUE, rows::addAll);
         return rows;
     }
 
-    static List<String> parseCsvLine(String line) {
-        List<String> out = new ArrayList<>();
-        StringBuilder sb = new StringBuilder();
-        boolean inQ = false;
-        for (int i = 0; i < line.length(); i++) {
-            char c = line.charAt(i);
-            if (inQ) {
-                if (c == '"') {
-                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
-                        sb.append('"');
-                        i++;
-                    } else {
-                        inQ = false;
-                    }
-                } else {
-                    sb.append(c);
-                }
-            } else {
-                if (c == ',') {
-                    out.add(sb.toString());
-                    sb.setLength(0);
-                } else if (c == '"') {
-                    inQ = true;
-                } else {
-                    sb.append(c);
+    // 流式读取：每凑满 chunkSize 行回调一次 sink（每块是新的 List，最后一块可能不足）
+    static void readCsvChunks(Path p, int chunkSize, Consumer<List<CsvRow>> sink) throws IOException {
+        List<CsvRow> rows = new ArrayList<>();
+        try (CsvScanner sc = new CsvScanner(p)) {
+            if (sc.header().length == 0) {
+                return;
+            }
+            Map<String, Integer> columns = CatalogSchema.canonical(sc.columns());   // 其它来源的列名映射到标准列
+            while (sc.next()) {
+                rows.add(new CsvRow(columns, sc.copyRecord(), sc.copyBounds()));
+                if (rows.size() >= chunkSize) {
+                    sink.accept(rows);
+                    rows = new ArrayList<>();
                 }
             }
         }
-        out.add(sb.toString());
-        return out;
+        if (!rows.isEmpty()) {
+            sink.accept(rows);
+        }
     }
 
-    static int countQuotes(String s) {
-        int c = 0;
-        for (char ch : s.toCharArray()) {
-            if (ch == '"') {
-                c++;
+    /* ====================== 文本构建与分词 ====================== */
+    static Product toProduct(CsvRow r) {
+        Product product = new Product();
+        product.brand = CatalogSchema.brand(r.get("Brand"));
+        product.model = r.get("Model");
+        product.title = r.get("Title");
+        product.description = r.get("Description");
+        product.price = CatalogSchema.toUsd(parseDouble(r.get("Price (USD)")), r.get("Currency"));
+        product.rating = parseDouble(r.get("Rating (out of 5)"));
+        product.availability = CatalogSchema.availability(r.get("Availability"));
+        product.batteryType = r.get("Battery_Type");
+        product.waterproof = r.get("Waterproof");
+        product.corpus = buildCorpus(r);
+        return product;
+    }
+
+    // 分词计数：avl 模式写入 product.tf，intern 模式写入 product.termFreq（termId 来自 tokenizer 的词典）
+    static void countTerms(Product product, boolean useAvl, TermIdTokenizer tokenizer) {
+        if (useAvl) {
+            product.tf = new AVLTree();
+            List<String> tokens = tokenize(product.corpus);
+            for (String t : tokens) {
+                product.tf.insert(tokenizer.normalize(t));
             }
+            product.totalTerms = product.tf.sumFreq();
+        } else {
+            product.termFreq = new IntIntMap();
+            product.totalTerms = tokenizer.countInto(product.corpus, product.termFreq);
         }
-        return c;
     }
 
-    /* ====================== 文本构建与分词 ====================== */
     static String buildCorpus(CsvRow r) {
-        String[] keys = {"Title", "Description", "Battery_Type", "Waterproof"};
+        return buildCorpus(r.get("Title"), r.get("Description"), r.get("Battery_Type"), r.get("Waterproof"));
+    }
+
+    static String buildCorpus(String... parts) {
         StringBuilder sb = new StringBuilder();
-        for (String k : keys) {
-            String v = r.get(k);
+        for (String v : parts) {
             if (v != null && !v.trim().isEmpty()) {
                 sb.append(' ').append(v);
             }
@@ -366,43 +334,11 @@ public class PageRankingMain {
     }
 
     /* ====================== 评分模块 ====================== */
-    // 词级分：Σ tf(word) * weight(word)，可选再除以 log(2+总词数)
-    static double wordScore(AVLTree tf, Map<String, Integer> wordW, boolean normalize) {
-        if (tf == null || tf.root == null) {
-            return 0.0;
-        }
-        double s = 0.0;
-        int total = 0;
-        for (Map.Entry<String, Integer> e : tf.toList()) {
-            int w = wordW.getOrDefault(e.getKey(), 0);
-            s += w * e.getValue();
-            total += e.getValue();
-        }
-        if (normalize && total > 0) {
-            s /= Math.log(2 + total);
-        }
-        return s;
-    }
+    // 词级分：Σ tf(word) * weight(word) / log(2+总词数)，由 InvertedIndex.wordScores 按 postings 一次算出
 
-    // 短语分：全文 contains 计数 * 短语权重
-    static double phraseScore(String text, Map<String, Integer> phraseW) {
-        if (text == null) {
-            return 0.0;
-        }
-        String t = text.toLowerCase();
-        double s = 0.0;
-        for (Map.Entry<String, Integer> e : phraseW.entrySet()) {
-            int c = countOccurrences(t, e.getKey());
-            s += c * e.getValue();
-        }
-        return s;
-    }
-
-    static int countOccurrences(String text, String sub) {
-        Matcher m = Pattern.compile(Pattern.quote(sub)).matcher(text);
-        int c = 0;
-        while (m.find()) c++;
-        return c;
+    // 短语分：Aho–Corasick 单次扫描，各短语不重叠计数 * 短语权重
+    static double phraseScore(String text, PhraseMatcher phrases) {
+        return phrases.score(text);
     }
 
     // 评分子项：评分、价格、续航/防水、库存
@@ -418,73 +354,71 @@ public class PageRankingMain {
         return Math.exp(-Math.abs(price - median) / median);
     }
 
-    static double batteryBonus(String b) {
-        if (b == null) return 0.0;
-        String s = b.toLowerCase();
-        if (s.contains("lithium")) return 0.30;
-        if (s.contains("nimh")) return 0.20;
-        if (s.contains("aa")) return 0.10;
-        return 0.0;
-    }
-
-    static double waterBonus(String w) {
-        if (w == null) return 0.0;
-        String s = w.toLowerCase();
-        if (s.contains("fully")) return 0.30;
-        if (s.contains("ipx7")) return 0.25;
-        if (s.contains("splash")) return 0.10;
-        return 0.0;
-    }
-
-    static double availBonus(String a) {
-        if (a == null) return 0.0;
-        String s = a.toLowerCase();
-        if (s.contains("in stock")) return 0.30;
-        if (s.contains("limited")) return 0.20;
-        if (s.contains("online only")) return 0.10;
-        if (s.contains("out of stock")) return -0.20; // 缺货减分
-        return 0.0;
-    }
+    // 续航 / 防水 / 库存加成：导入时解码为编码（Attributes），见 ProductFeatures.extra
 
     // 权重（可微调）
     static double wText = 0.40, wRate = 0.25, wPrice = 0.20, wExtra = 0.15;
 
-    // 综合分：Text(词+短语) + Rating + Price + Extras
-    static double computeScore(Product p, Map<String, Integer> wordW, Map<String, Integer> phraseW, double brandMedian) {
-        double textWord = wordScore(p.tf, wordW, true);
-        double textPhrase = phraseScore(p.corpus, phraseW);
-        double text = textWord + textPhrase;              // 文本总体
-
-        double rating = ratingNorm(p.rating);             // [0,1]
-        double price = priceFactor(p.price, brandMedian);// (0,1]
-        double extra = (batteryBonus(p.batteryType) + waterBonus(p.waterproof) + availBonus(p.availability)) / 3.0;
-
-        return wText * text + wRate * rating + wPrice * price + wExtra * extra;
-    }
+    // 综合分：Text(词+短语) + Rating + Price + Extras，见 ProductFeatures.blend；
+    // 批处理在 RankingPipeline 中按 ProductTable 的列计算
 
     /* ====================== 品牌中位价 ====================== */
+    // 品牌没有任何有效价格时使用的中位价
+    static final double DEFAULT_MEDIAN_PRICE = 60.0;
+
+    // 精确中位价（quickselect）；流水线中改为在合并阶段流式累加，见 BrandMedians
     static Map<String, Double> brandMedianPrice(List<Product> prods) {
-        Map<String, List<Double>> map = new HashMap<>();
+        BrandMedians acc = new BrandMedians();
         for (Product p : prods) {
-            if (p.price > 0) {
-                map.computeIfAbsent(p.brand, k -> new ArrayList<>()).add(p.price);
-            }
+            acc.add(p.brand, p.price);
         }
-        Map<String, Double> med = new HashMap<>();
-        for (Map.Entry<String, List<Double>> e : map.entrySet()) {
-            List<Double> xs = e.getValue();
-            Collections.sort(xs);
-            double m = xs.get(xs.size() / 2);
-            med.put(e.getKey(), m);
-        }
-        return med;
+        return acc.medians();
     }
 
     /* ====================== 工具 ====================== */
+    // 只保留 [0-9.] 后按小数解析（如 "$1,299.99" -> 1299.99），无法解析时为 0；不用正则
     static double parseDouble(String s) {
+        if (s == null) {
+            return 0.0;
+        }
+        long mantissa = 0;
+        int digits = 0, scale = 0, dots = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digits > 15) {
+                    return parseDoubleSlow(s);
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (dots > 0) {
+                    scale++;
+                }
+            } else if (c == '.') {
+                dots++;
+            }
+        }
+        if (digits == 0 || dots > 1) {
+            return 0.0;
+        }
+        // 尾数与 10^scale 都能精确表示，一次除法即正确舍入，结果与 Double.parseDouble 相同
+        return mantissa / POW10[scale];
+    }
+
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+    };
+
+    private static double parseDoubleSlow(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if ((c >= '0' && c <= '9') || c == '.') {
+                sb.append(c);
+            }
+        }
         try {
-            return Double.parseDouble(s.replaceAll("[^0-9.]", ""));
-        } catch (Exception e) {
+            return Double.parseDouble(sb.toString());
+        } catch (NumberFormatException e) {
             return 0.0;
         }
     }
@@ -500,95 +434,144 @@ public class PageRankingMain {
         String csv = arg.getOrDefault("csv", "Assignment2_Data.csv");
         int topN = Integer.parseInt(arg.getOrDefault("top", "10"));
         int brandTop = Integer.parseInt(arg.getOrDefault("brand-top", "5"));
-
-        Path path = Paths.get(csv);
-        if (!Files.exists(path)) {
-            System.err.println("CSV 不存在: " + path.toAbsolutePath());
+        boolean useAvl = "avl".equalsIgnoreCase(arg.getOrDefault("tokenizer", "intern"));
+        int threads = Integer.parseInt(arg.getOrDefault("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        int chunk = Integer.parseInt(arg.getOrDefault("chunk", String.valueOf(RankingPipeline.DEFAULT_CHUNK)));
+        BrandMedians.Mode medianMode = BrandMedians.Mode.valueOf(arg.getOrDefault("median", "exact").toUpperCase());
+        int medianK = Integer.parseInt(arg.getOrDefault("median-k", String.valueOf(BrandMedians.DEFAULT_SKETCH_K)));
+        TermNormalizer.Mode normMode = TermNormalizer.Mode.valueOf(arg.getOrDefault("normalize", "none").toUpperCase());
+
+        List<Path> shards = new ArrayList<>();
+        for (String s : csv.split(",")) {
+            if (!s.trim().isEmpty()) {
+                shards.add(Paths.get(s.trim()));
+            }
+        }
+        for (Path p : shards) {
+            if (!Files.exists(p)) {
+                System.err.println("CSV 不存在: " + p.toAbsolutePath());
+                return;
+            }
+        }
+        String fx = arg.get("fx");
+        if (fx != null) {
+            CatalogSchema.setRates(fx);
+        }
+
+        // 词项归一化与关键词权重（权重表的键按同一规则归一化）
+        String synonyms = arg.get("synonyms");
+        TermNormalizer normalizer = synonyms == null ? new TermNormalizer(normMode)
+                : new TermNormalizer(normMode, TermNormalizer.loadSynonyms(Paths.get(synonyms)));
+        Map<String, Integer> wordW = normalizer.normalizeWeights(buildWordWeights());
+        PhraseMatcher phrases = new PhraseMatcher(buildPhraseWeights());
+
+        /* --------- 多文件分片（--csv a.csv,b.csv,...）：各分片并行排序后合并部分结果 --------- */
+        String snap = arg.get("snapshot");
+        if (shards.size() > 1 || arg.containsKey("exchange")) {
+            runShards(shards, snap, arg.get("exchange"), threads, chunk, useAvl, medianMode, medianK, normalizer,
+                    wordW, phrases, topN, brandTop);
+            if (arg.containsKey("sweep") || arg.containsKey("query") || arg.containsKey("deltas")
+                    || arg.containsKey("explain")) {
+                System.err.println("--sweep / --query / --deltas / --explain 目前只支持单个 CSV，分片模式下已忽略");
+            }
             return;
         }
-
-        // 读取 CSV -> Product
-        List<CsvRow> rows = readCsv(path);
-        if (rows.isEmpty()) {
+        Path path = shards.get(0);
+
+        // 分块读取 CSV -> 并行分词 -> 合入倒排索引 -> 并行打分
+        RankingPipeline pipeline = new RankingPipeline(threads, chunk, useAvl, new BrandMedians(medianMode, medianK),
+                normalizer);
+        Path snapshot = snap == null ? null : Paths.get("true".equals(snap) ? csv + ".snap" : snap);
+        String explain = arg.get("explain");
+        pipeline.explain(explain != null);
+        Leaderboard board = pipeline.run(path, snapshot, wordW, phrases, topN, brandTop);
+        ProductTable table = pipeline.table;
+        if (table.size() == 0) {
             System.err.println("CSV 没有数据（可能只有表头）。");
             return;
         }
+        if (explain != null) {
+            Path file = Paths.get("true".equals(explain) ? csv + ".explain.jsonl" : explain);
+            long t0 = System.nanoTime();
+            long bytes = pipeline.explain.write(file, table);
+            System.err.printf("打分明细：%d 个商品 -> %s（%.1f MB，%.1f ms）%n",
+                    table.size(), file, bytes / 1048576.0, (System.nanoTime() - t0) / 1e6);
+        }
+        InvertedIndex index = pipeline.index;
 
-        List<Product> products = new ArrayList<>();
-        for (CsvRow r : rows) {
-            Product product = new Product();
-            product.brand = r.get("Brand");
-            product.model = r.get("Model");
-            product.title = r.get("Title");
-            product.description = r.get("Description");
-            product.price = parseDouble(r.get("Price (USD)"));
-            product.rating = parseDouble(r.get("Rating (out of 5)"));
-            product.availability = r.get("Availability");
-            product.batteryType = r.get("Battery_Type");
-            product.waterproof = r.get("Waterproof");
-            product.corpus = buildCorpus(r);
-
-            // 分词 -> AVL 词频树
-            product.tf = new AVLTree();
-            List<String> tokens = tokenize(product.corpus);
-            for (String t : tokens) {
-                product.tf.insert(t);
-            }
-            product.totalTerms = product.tf.sumFreq();
+        /* --------- 权重扫描（--sweep）：分量只算一次，按每组权重输出 Top-N --------- */
+        String sweep = arg.get("sweep");
+        if (sweep != null) {
+            runSweep(table, WeightSweep.parse(sweep), topN, threads);
+            return;
+        }
 
-            products.add(product);
+        /* --------- 查询（--query）：BM25 文本分 + 静态分，WAND 检索 Top-N --------- */
+        String query = arg.get("query");
+        if (query != null) {
+            runQueries(new QueryRanker(index, table, normalizer), table, query.split(";"), topN,
+                    !"false".equalsIgnoreCase(arg.getOrDefault("wand", "true")));
+            return;
         }
 
-        // 关键词权重
-        Map<String, Integer> wordW = buildWordWeights();
-        Map<String, Integer> phraseW = buildPhraseWeights();
-        Map<String, Double> brandMed = brandMedianPrice(products);
+        /* --------- 逐页输出关键词 Top-10（词频正排表 + 有界堆） --------- */
+        System.out.println("===== Per-Product Keyword Top-10 (by term-frequency table + bounded heap) =====");
+        printKeywords(table);
 
-        // 每个产品计算得分
-        for (Product product : products) {
-            double med = brandMed.getOrDefault(product.brand, 60.0);
-            product.score = computeScore(product, wordW, phraseW, med);
+        /* --------- 全局 Top-N / 品牌内 Top-M（有界最小堆） --------- */
+        Map<String, List<Product>> brandLists = new LinkedHashMap<>();
+        for (int b = 0; b < board.brandCount(); b++) {
+            TopK t = board.brand(b);
+            if (t != null) {
+                brandLists.put(table.brands.term(b), table.rows(t.sorted()));
+            }
         }
+        printLeaderboard(table.rows(board.global.sorted()), brandLists, topN, brandTop);
 
-        /* --------- 逐页输出关键词 Top-10（QuickSort） --------- */
-        System.out.println("===== Per-Product Keyword Top-10 (by AVL + QuickSort) =====");
-        for (Product product : products) {
-            List<Map.Entry<String, Integer>> list = product.tf.toList();
-            Sorts.quickSortByFreqDesc(list);
-            System.out.println(safe(product.title) + "(" + safe(product.model) + ")" );
+        /* --------- 增量更新（--deltas 文件，Op 列为 insert / update / delete） --------- */
+        String deltas = arg.get("deltas");
+        if (deltas != null) {
+            List<Product> products = new ArrayList<>(table.size());
+            for (int doc = 0; doc < table.size(); doc++) {
+                products.add(table.row(doc));
+            }
+            applyDeltas(Paths.get(deltas), products, index.dict, normalizer, wordW, phrases, topN, brandTop);
+        }
+    }
+
+    // 每个商品的关键词 Top-10（词频正排表上的有界堆）
+    static void printKeywords(ProductTable table) {
+        int[] top = new int[10];
+        StringBuilder sb = new StringBuilder();
+        for (int doc = 0; doc < table.size(); doc++) {
+            int n = table.topTerms(doc, top.length, top);
+            System.out.println(safe(table.text.get(table.title[doc])) + "(" + safe(table.text.get(table.model[doc])) + ")" );
             System.out.print("==> Top10 Keywords Frequency[ ");
-            StringBuilder sb = new StringBuilder();
-            for (int i = 0; i < Math.min(10, list.size()); i++) {
-                Map.Entry<String, Integer> e = list.get(i);
-                sb.append(e.getKey()).append(":").append(e.getValue()).append("| ");
+            sb.setLength(0);
+            for (int i = 0; i < n; i++) {
+                sb.append(table.dict.term(table.termIds[top[i]])).append(":").append(table.termFreqs[top[i]]).append("| ");
             }
-            System.out.println(sb.substring(0, sb.length() - 2) + " ]");
+            System.out.println(sb.substring(0, Math.max(0, sb.length() - 2)) + " ]");
             System.out.println();
         }
+    }
 
-        /* --------- 全局 Top-N（最大堆） --------- */
-        PriorityQueue<Product> maxHeap = new PriorityQueue<>((a, b) -> Double.compare(b.score, a.score));
-        maxHeap.addAll(products);
+    static void printLeaderboard(List<Product> top, Map<String, List<Product>> brandLists, int topN, int brandTop) {
         System.out.println("##### Global Top-" + topN + " Electric Toothbrushes #####");
-        for (int i = 0; i < Math.min(topN, maxHeap.size()); i++) {
-            Product p = maxHeap.poll();
+        for (int i = 0; i < top.size(); i++) {
+            Product p = top.get(i);
             System.out.printf("%2d) [%.4f] %s | %s | $%.2f | ⭐ %.1f%n",
                     i + 1, p.score, safe(p.brand), safe(p.title), p.price, p.rating);
         }
         System.out.println();
 
-        /* --------- 品牌内 Top-M（每个品牌一个最大堆） --------- */
-        Map<String, PriorityQueue<Product>> brandHeaps = new LinkedHashMap<>();
-        for (Product p : products) {
-            brandHeaps.computeIfAbsent(p.brand, k -> new PriorityQueue<>((a, b) -> Double.compare(b.score, a.score)))
-                    .add(p);
-        }
         System.out.println("##### Per-Brand Top-" + brandTop + " #####");
-        for (Map.Entry<String, PriorityQueue<Product>> e : brandHeaps.entrySet()) {
+        for (Map.Entry<String, List<Product>> e : brandLists.entrySet()) {
             System.out.println("Brand: " + e.getKey());
-            PriorityQueue<Product> heap = e.getValue();
-            for (int i = 0; i < Math.min(brandTop, heap.size()); i++) {
-                Product p = heap.poll();
+            List<Product> list = e.getValue();
+            for (int i = 0; i < list.size(); i++) {
+                Product p = list.get(i);
                 System.out.printf("  %2d) [%.4f] %s ($%.2f, ⭐%.1f)%n",
                         i + 1, p.score, safe(p.title), p.price, p.rating);
             }
@@ -596,6 +579,116 @@ public class PageRankingMain {
         }
     }
 
+    /* ====================== 多文件分片 ====================== */
+    // 快照：--snapshot 不带值时每个分片用各自的 CSV 同名 .snap；指定文件名时追加分片序号
+    static void runShards(List<Path> shards, String snap, String exchange, int threads, int chunk, boolean useAvl,
+                          BrandMedians.Mode medianMode, int medianK, TermNormalizer normalizer,
+                          Map<String, Integer> wordW, PhraseMatcher phrases, int topN, int brandTop)
+            throws IOException {
+        List<Path> snapshots = new ArrayList<>();
+        for (int i = 0; i < shards.size(); i++) {
+            snapshots.add(snap == null ? null
+                    : Paths.get("true".equals(snap) ? shards.get(i) + ".snap" : snap + "." + i));
+        }
+        Path exchangeDir = exchange == null ? null : Paths.get("true".equals(exchange) ? "shard-exchange" : exchange);
+        ShardedRanking sharded = new ShardedRanking(shards, snapshots, threads, chunk, useAvl, medianMode, medianK,
+                normalizer, exchangeDir);
+        ShardedRanking.Result result = sharded.run(wordW, phrases, topN, brandTop);
+        if (result.size == 0) {
+            System.err.println("CSV 没有数据（可能只有表头）。");
+            return;
+        }
+        System.out.println("===== Per-Product Keyword Top-10 (by term-frequency table + bounded heap) =====");
+        for (ProductTable t : sharded.tables()) {
+            printKeywords(t);
+        }
+        printLeaderboard(result.global, result.brands, topN, brandTop);
+    }
+
+    /* ====================== 权重扫描 ====================== */
+    static void runSweep(ProductTable table, double[][] weights, int topN, int threads) {
+        long t0 = System.nanoTime();
+        WeightSweep sweep = new WeightSweep(table, weights);
+        long t1 = System.nanoTime();
+        TopK[] tops = sweep.run(topN, threads);
+        long t2 = System.nanoTime();
+
+        for (int j = 0; j < weights.length; j++) {
+            double[] w = weights[j];
+            System.out.printf("##### Sweep %d: wText=%.3f wRate=%.3f wPrice=%.3f wExtra=%.3f #####%n",
+                    j + 1, w[0], w[1], w[2], w[3]);
+            List<Product> top = table.rows(tops[j].sorted());
+            double[] scores = tops[j].sortedScores();
+            for (int i = 0; i < top.size(); i++) {
+                Product p = top.get(i);
+                System.out.printf("%2d) [%.4f] %s | %s | $%.2f | ⭐ %.1f%n",
+                        i + 1, scores[i], safe(p.brand), safe(p.title), p.price, p.rating);
+            }
+            System.out.println();
+        }
+        double perCell = weights.length == 0 || table.size() == 0 ? 0.0
+                : (t2 - t1) / (double) weights.length / table.size();
+        System.out.printf("Sweep: %d products x %d weight vectors, components %.2f ms, re-rank %.2f ms (%.2f ns/product/vector)%n",
+                table.size(), weights.length, (t1 - t0) / 1e6, (t2 - t1) / 1e6, perCell);
+    }
+
+    /* ====================== 查询 ====================== */
+    static void runQueries(QueryRanker ranker, ProductTable table, String[] queries, int topN, boolean wand) {
+        for (String q : queries) {
+            long t0 = System.nanoTime();
+            TopK top = wand ? ranker.search(q, topN) : ranker.searchExhaustive(q, topN);
+            long ns = System.nanoTime() - t0;
+            System.out.printf("##### Query \"%s\" (%s, %.3f ms, %d products scored) #####%n",
+                    q.trim(), wand ? "BM25 + WAND" : "BM25 exhaustive", ns / 1e6, ranker.scored);
+            List<Product> rows = table.rows(top.sorted());
+            double[] scores = top.sortedScores();
+            for (int i = 0; i < rows.size(); i++) {
+                Product p = rows.get(i);
+                System.out.printf("%2d) [%.4f] %s | %s | $%.2f | ⭐ %.1f%n",
+                        i + 1, scores[i], safe(p.brand), safe(p.title), p.price, p.rating);
+            }
+            System.out.println();
+        }
+    }
+
+    /* ====================== 增量更新 ====================== */
+    // 商品标识：品牌 + 型号 + 标题（CSV 中没有独立的 id 列）；仍重复的行见 RankingEngine.bulkLoad
+    static String productKey(Product p) {
+        return p.brand + "|" + p.model + "|" + p.title;
+    }
+
+    // 把全量结果装入常驻引擎，再逐条应用增量并输出更新后的排行
+    static void applyDeltas(Path file, List<Product> products, TermDictionary dict, TermNormalizer normalizer,
+                            Map<String, Integer> wordW, PhraseMatcher phrases, int topN, int brandTop)
+            throws IOException {
+        if (!Files.exists(file)) {
+            System.err.println("增量文件不存在: " + file.toAbsolutePath());
+            return;
+        }
+        RankingEngine engine = new RankingEngine(dict, normalizer, wordW, phrases);
+        int duplicates = engine.bulkLoad(products, PageRankingMain::productKey);
+        if (duplicates > 0) {
+            System.err.println("有 " + duplicates + " 个商品的 品牌|型号|标题 与前面的行重复：均保留并参与排名，"
+                    + "增量文件中的同名行只作用于第一个");
+        }
+
+        List<CsvRow> rows = readCsv(file);
+        long t0 = System.nanoTime();
+        for (CsvRow r : rows) {
+            Product p = toProduct(r);
+            if ("delete".equalsIgnoreCase(r.get("Op").trim())) {
+                engine.delete(productKey(p));
+            } else {
+                engine.upsert(productKey(p), p);
+            }
+        }
+        long ns = System.nanoTime() - t0;
+
+        System.out.printf("##### After %d deltas (%.1f µs/delta, %d products) #####%n",
+                rows.size(), rows.isEmpty() ? 0.0 : ns / 1000.0 / rows.size(), engine.size());
+        printLeaderboard(engine.top(topN), engine.brandTop(brandTop), topN, brandTop);
+    }
+
     /* ====================== 参数解析 ====================== */
     static Map<String, String> parseArgs(String[] args) {
         Map<String, String> m = new HashMap<>();
@@ -0,0 +1,212 @@
+package assignment2;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * 短语打分自动机（Aho–Corasick）
+ * <p>
+ * 1) 由短语权重表一次性构建：Trie + 失配指针，再补全为 DFA（delta[state * sigma + 字符类]）
+ * 2) 对每个文本只做一次线性扫描，同时统计所有短语的出现次数
+ * 3) 计数语义与 Matcher.find() 一致：每个短语各自按"最左、不重叠"计数
+ * <p>
+ * 只有短语中出现过的字符才分配字符类，其余字符统一归为类 0（必然回到根状态）。
+ * 构建后只读，可被多个线程共享。
+ */
+final class PhraseMatcher {
+
+    private final String[] phrases;   // 短语（保持权重表的迭代顺序）
+    private final int[] weights;
+    private final int[] lengths;
+
+    private final int[] asciiClass = new int[128];  // ASCII 字符 -> 字符类
+    private final char[] otherChars;                // 非 ASCII 字符（有序，二分查找）
+    private final int[] otherClass;
+    private final int sigma;
+
+    private final int[] delta;       // 完整转移表
+    private final int[] outStart;    // state 的输出短语区间 [outStart[s], outStart[s+1])
+    private final int[] outList;
+
+    PhraseMatcher(Map<String, Integer> phraseW) {
+        int k = phraseW.size();
+        phrases = new String[k];
+        weights = new int[k];
+        lengths = new int[k];
+        int i = 0;
+        for (Map.Entry<String, Integer> e : phraseW.entrySet()) {
+            phrases[i] = e.getKey();
+            weights[i] = e.getValue();
+            lengths[i] = e.getKey().length();
+            i++;
+        }
+
+        // 字符类：0 保留给"不在任何短语中"的字符
+        int classes = 1;
+        char[] other = new char[16];
+        int otherN = 0;
+        for (String p : phrases) {
+            for (int j = 0; j < p.length(); j++) {
+                char c = p.charAt(j);
+                if (c < 128) {
+                    if (asciiClass[c] == 0) {
+                        asciiClass[c] = classes++;
+                    }
+                } else if (indexOf(other, otherN, c) < 0) {
+                    if (otherN == other.length) {
+                        other = Arrays.copyOf(other, otherN * 2);
+                    }
+                    other[otherN++] = c;
+                }
+            }
+        }
+        otherChars = Arrays.copyOf(other, otherN);
+        Arrays.sort(otherChars);
+        otherClass = new int[otherN];
+        for (int j = 0; j < otherN; j++) {
+            otherClass[j] = classes++;
+        }
+        sigma = classes;
+
+        // Trie：goTo 中 -1 表示无边
+        int maxStates = 1;
+        for (String p : phrases) {
+            maxStates += p.length();
+        }
+        int[] goTo = new int[maxStates * sigma];
+        Arrays.fill(goTo, -1);
+        int[][] own = new int[maxStates][];
+        int states = 1;
+        for (int pid = 0; pid < k; pid++) {
+            int s = 0;
+            String p = phrases[pid];
+            for (int j = 0; j < p.length(); j++) {
+                int idx = s * sigma + classOf(p.charAt(j));
+                if (goTo[idx] < 0) {
+                    goTo[idx] = states++;
+                }
+                s = goTo[idx];
+            }
+            own[s] = append(own[s], pid);
+        }
+
+        // BFS：失配指针 + DFA 补全 + 输出集合沿失配链合并
+        delta = Arrays.copyOf(goTo, states * sigma);
+        int[] fail = new int[states];
+        int[][] out = new int[states][];
+        out[0] = own[0] == null ? new int[0] : own[0];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < sigma; c++) {
+            int t = delta[c];
+            if (t < 0) {
+                delta[c] = 0;
+            } else {
+                fail[t] = 0;
+                queue.add(t);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int s = queue.poll();
+            out[s] = merge(own[s], out[fail[s]]);
+            for (int c = 0; c < sigma; c++) {
+                int t = delta[s * sigma + c];
+                if (t < 0) {
+                    delta[s * sigma + c] = delta[fail[s] * sigma + c];
+                } else {
+                    fail[t] = delta[fail[s] * sigma + c];
+                    queue.add(t);
+                }
+            }
+        }
+
+        outStart = new int[states + 1];
+        for (int s = 0; s < states; s++) {
+            outStart[s + 1] = outStart[s] + out[s].length;
+        }
+        outList = new int[outStart[states]];
+        for (int s = 0; s < states; s++) {
+            System.arraycopy(out[s], 0, outList, outStart[s], out[s].length);
+        }
+    }
+
+    int size() {
+        return phrases.length;
+    }
+
+    String phrase(int pid) {
+        return phrases[pid];
+    }
+
+    int weight(int pid) {
+        return weights[pid];
+    }
+
+    /** 短语分：Σ count(phrase) * weight(phrase)，文本先整体小写（与原 phraseScore 一致） */
+    double score(String text) {
+        if (text == null) {
+            return 0.0;
+        }
+        int[] counts = new int[phrases.length];
+        count(text.toLowerCase(), counts);
+        double s = 0.0;
+        for (int pid = 0; pid < counts.length; pid++) {
+            s += counts[pid] * weights[pid];
+        }
+        return s;
+    }
+
+    /** 单次扫描统计每个短语的不重叠出现次数，写入 counts[pid]（调用方负责大小写处理） */
+    void count(String text, int[] counts) {
+        int[] nextFree = new int[phrases.length];   // 该短语下一次匹配允许的最小起点
+        int s = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            s = delta[s * sigma + classOf(text.charAt(i))];
+            for (int o = outStart[s], end = outStart[s + 1]; o < end; o++) {
+                int pid = outList[o];
+                int start = i - lengths[pid] + 1;
+                if (start >= nextFree[pid]) {
+                    counts[pid]++;
+                    nextFree[pid] = i + 1;
+                }
+            }
+        }
+    }
+
+    /* ====================== 内部实现 ====================== */
+
+    private int classOf(char c) {
+        if (c < 128) {
+            return asciiClass[c];
+        }
+        int j = Arrays.binarySearch(otherChars, c);
+        return j < 0 ? 0 : otherClass[j];
+    }
+
+    private static int indexOf(char[] a, int n, char c) {
+        for (int i = 0; i < n; i++) {
+            if (a[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int[] append(int[] a, int v) {
+        if (a == null) {
+            return new int[]{v};
+        }
+        int[] b = Arrays.copyOf(a, a.length + 1);
+        b[a.length] = v;
+        return b;
+    }
+
+    private static int[] merge(int[] a, int[] b) {
+        if (a == null) {
+            return b;
+        }
+        int[] c = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, c, a.length, b.length);
+        return c;
+    }
+}
@@ -0,0 +1,322 @@
+package assignment2;
+
+import java.util.Arrays;
+
+/**
+ * Porter 词干提取（M.F. Porter, 1980, "An algorithm for suffix stripping"）
+ * <p>
+ * 输入为已小写的 [a-z] 单词；长度不超过 2 的词原样返回。
+ * 实例内部有可变缓冲区：每次调用 stem 都可复用同一实例，但不可跨线程共享。
+ */
+final class PorterStemmer {
+
+    private char[] b = new char[32];
+    private int k;      // 当前词的最后一个下标
+    private int j;      // 后缀匹配后词干的最后一个下标
+
+    String stem(String word) {
+        int len = word.length();
+        if (len <= 2) {
+            return word;
+        }
+        if (b.length < len + 8) {
+            b = new char[len + 8];
+        }
+        word.getChars(0, len, b, 0);
+        k = len - 1;
+        step1ab();
+        if (k > 0) {
+            step1c();
+            step2();
+            step3();
+            step4();
+            step5();
+        }
+        return k == len - 1 && regionEquals(word) ? word : new String(b, 0, k + 1);
+    }
+
+    private boolean regionEquals(String word) {
+        for (int i = 0; i <= k; i++) {
+            if (b[i] != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* ====================== 辅助判断 ====================== */
+
+    private boolean cons(int i) {
+        switch (b[i]) {
+            case 'a': case 'e': case 'i': case 'o': case 'u':
+                return false;
+            case 'y':
+                return i == 0 || !cons(i - 1);
+            default:
+                return true;
+        }
+    }
+
+    // [0, j] 中 (元音+辅音) 序列的个数：<c>(vc)^m<v>
+    private int m() {
+        int n = 0, i = 0;
+        while (true) {
+            if (i > j) return n;
+            if (!cons(i)) break;
+            i++;
+        }
+        i++;
+        while (true) {
+            while (true) {
+                if (i > j) return n;
+                if (cons(i)) break;
+                i++;
+            }
+            i++;
+            n++;
+            while (true) {
+                if (i > j) return n;
+                if (!cons(i)) break;
+                i++;
+            }
+            i++;
+        }
+    }
+
+    private boolean vowelInStem() {
+        for (int i = 0; i <= j; i++) {
+            if (!cons(i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean doublec(int i) {
+        return i >= 1 && b[i] == b[i - 1] && cons(i);
+    }
+
+    // i-2, i-1, i 为 辅音-元音-辅音，且最后一个不是 w / x / y
+    private boolean cvc(int i) {
+        if (i < 2 || !cons(i) || cons(i - 1) || !cons(i - 2)) {
+            return false;
+        }
+        char ch = b[i];
+        return ch != 'w' && ch != 'x' && ch != 'y';
+    }
+
+    private boolean ends(String s) {
+        int l = s.length(), o = k - l + 1;
+        if (o < 0) {
+            return false;
+        }
+        for (int i = 0; i < l; i++) {
+            if (b[o + i] != s.charAt(i)) {
+                return false;
+            }
+        }
+        j = k - l;
+        return true;
+    }
+
+    private void setto(String s) {
+        int l = s.length(), o = j + 1;
+        if (o + l > b.length) {
+            b = Arrays.copyOf(b, o + l + 8);
+        }
+        s.getChars(0, l, b, o);
+        k = j + l;
+    }
+
+    private void r(String s) {
+        if (m() > 0) {
+            setto(s);
+        }
+    }
+
+    /* ====================== 各步骤 ====================== */
+
+    // 复数与 -ed / -ing
+    private void step1ab() {
+        if (b[k] == 's') {
+            if (ends("sses")) {
+                k -= 2;
+            } else if (ends("ies")) {
+                setto("i");
+            } else if (b[k - 1] != 's') {
+                k--;
+            }
+        }
+        if (ends("eed")) {
+            if (m() > 0) {
+                k--;
+            }
+        } else if ((ends("ed") || ends("ing")) && vowelInStem()) {
+            k = j;
+            if (ends("at")) {
+                setto("ate");
+            } else if (ends("bl")) {
+                setto("ble");
+            } else if (ends("iz")) {
+                setto("ize");
+            } else if (doublec(k)) {
+                k--;
+                char ch = b[k];
+                if (ch == 'l' || ch == 's' || ch == 'z') {
+                    k++;
+                }
+            } else if (m() == 1 && cvc(k)) {
+                setto("e");
+            }
+        }
+    }
+
+    // 词干含元音时 y -> i
+    private void step1c() {
+        if (ends("y") && vowelInStem()) {
+            b[k] = 'i';
+        }
+    }
+
+    // 双重后缀 -> 单一后缀
+    private void step2() {
+        if (k < 1) {
+            return;
+        }
+        switch (b[k - 1]) {
+            case 'a':
+                if (ends("ational")) { r("ate"); break; }
+                if (ends("tional")) { r("tion"); break; }
+                break;
+            case 'c':
+                if (ends("enci")) { r("ence"); break; }
+                if (ends("anci")) { r("ance"); break; }
+                break;
+            case 'e':
+                if (ends("izer")) { r("ize"); break; }
+                break;
+            case 'l':
+                if (ends("bli")) { r("ble"); break; }
+                if (ends("alli")) { r("al"); break; }
+                if (ends("entli")) { r("ent"); break; }
+                if (ends("eli")) { r("e"); break; }
+                if (ends("ousli")) { r("ous"); break; }
+                break;
+            case 'o':
+                if (ends("ization")) { r("ize"); break; }
+                if (ends("ation")) { r("ate"); break; }
+                if (ends("ator")) { r("ate"); break; }
+                break;
+            case 's':
+                if (ends("alism")) { r("al"); break; }
+                if (ends("iveness")) { r("ive"); break; }
+                if (ends("fulness")) { r("ful"); break; }
+                if (ends("ousness")) { r("ous"); break; }
+                break;
+            case 't':
+                if (ends("aliti")) { r("al"); break; }
+                if (ends("iviti")) { r("ive"); break; }
+                if (ends("biliti")) { r("ble"); break; }
+                break;
+            case 'g':
+                if (ends("logi")) { r("log"); break; }
+                break;
+            default:
+                break;
+        }
+    }
+
+    // -ic- / -full / -ness 等
+    private void step3() {
+        switch (b[k]) {
+            case 'e':
+                if (ends("icate")) { r("ic"); break; }
+                if (ends("ative")) { r(""); break; }
+                if (ends("alize")) { r("al"); break; }
+                break;
+            case 'i':
+                if (ends("iciti")) { r("ic"); break; }
+                break;
+            case 'l':
+                if (ends("ical")) { r("ic"); break; }
+                if (ends("ful")) { r(""); break; }
+                break;
+            case 's':
+                if (ends("ness")) { r(""); break; }
+                break;
+            default:
+                break;
+        }
+    }
+
+    // m > 1 时去掉 -ant / -ence 等
+    private void step4() {
+        if (k < 1) {
+            return;
+        }
+        switch (b[k - 1]) {
+            case 'a':
+                if (ends("al")) break;
+                return;
+            case 'c':
+                if (ends("ance")) break;
+                if (ends("ence")) break;
+                return;
+            case 'e':
+                if (ends("er")) break;
+                return;
+            case 'i':
+                if (ends("ic")) break;
+                return;
+            case 'l':
+                if (ends("able")) break;
+                if (ends("ible")) break;
+                return;
+            case 'n':
+                if (ends("ant")) break;
+                if (ends("ement")) break;
+                if (ends("ment")) break;
+                if (ends("ent")) break;
+                return;
+            case 'o':
+                if (ends("ion") && j >= 0 && (b[j] == 's' || b[j] == 't')) break;
+                if (ends("ou")) break;
+                return;
+            case 's':
+                if (ends("ism")) break;
+                return;
+            case 't':
+                if (ends("ate")) break;
+                if (ends("iti")) break;
+                return;
+            case 'u':
+                if (ends("ous")) break;
+                return;
+            case 'v':
+                if (ends("ive")) break;
+                return;
+            case 'z':
+                if (ends("ize")) break;
+                return;
+            default:
+                return;
+        }
+        if (m() > 1) {
+            k = j;
+        }
+    }
+
+    // 去掉末尾 -e，-ll -> -l
+    private void step5() {
+        j = k;
+        if (b[k] == 'e') {
+            int a = m();
+            if (a > 1 || (a == 1 && !cvc(k - 1))) {
+                k--;
+            }
+        }
+        if (b[k] == 'l' && doublec(k) && m() > 1) {
+            k--;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package assignment2;
+
+import java.util.Arrays;
+
+import assignment2.PageRankingMain.Product;
+
+/**
+ * 按列存放的打分特征（下标为 docId）
+ * <p>
+ * 导入时每个商品解码一次：价格 / 评分为原生 double，ratingNorm 与三项属性加成的均值预先算好，
+ * 电池 / 防水 / 库存另存 byte 编码（Attributes 中枚举的序号）。
+ * 打分只读这些列，不再有 String 操作；任何调整权重的重算都可以直接复用。
+ */
+final class ProductFeatures {
+
+    double[] price = new double[16];
+    double[] rating = new double[16];
+    double[] ratingNorm = new double[16];  // ratingNorm(rating)，[0,1]
+    double[] extra = new double[16];       // (电池 + 防水 + 库存加成) / 3
+    byte[] battery = new byte[16];
+    byte[] water = new byte[16];
+    byte[] avail = new byte[16];
+    private int size;
+
+    /** 写入（或覆盖）第 doc 行 */
+    void set(int doc, Product p) {
+        ensure(doc + 1);
+        Attributes.Battery b = Attributes.Battery.decode(p.batteryType);
+        Attributes.Water w = Attributes.Water.decode(p.waterproof);
+        Attributes.Availability a = Attributes.Availability.decode(p.availability);
+        price[doc] = p.price;
+        rating[doc] = p.rating;
+        ratingNorm[doc] = PageRankingMain.ratingNorm(p.rating);
+        extra[doc] = (b.bonus + w.bonus + a.bonus) / 3.0;
+        battery[doc] = (byte) b.ordinal();
+        water[doc] = (byte) w.ordinal();
+        avail[doc] = (byte) a.ordinal();
+        size = Math.max(size, doc + 1);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** 快照恢复用：把行数设为 n（各列容量至少为 n），随后由调用方直接填列 */
+    void resize(int n) {
+        ensure(n);
+        size = n;
+    }
+
+    /** 综合分：Text(词+短语) + Rating + Price + Extras（权重见 PageRankingMain.wText 等） */
+    double blend(int doc, double text, double brandMedian) {
+        return blendFactor(doc, text, PageRankingMain.priceFactor(this.price[doc], brandMedian));
+    }
+
+    /** 同上，价格因子（(0,1]）已算好；打分明细模式要单独记录它 */
+    double blendFactor(int doc, double text, double priceFactor) {
+        return PageRankingMain.wText * text + PageRankingMain.wRate * ratingNorm[doc]
+                + PageRankingMain.wPrice * priceFactor + PageRankingMain.wExtra * extra[doc];
+    }
+
+    private void ensure(int n) {
+        if (n <= price.length) {
+            return;
+        }
+        int cap = Math.max(n, price.length * 2);
+        price = Arrays.copyOf(price, cap);
+        rating = Arrays.copyOf(rating, cap);
+        ratingNorm = Arrays.copyOf(ratingNorm, cap);
+        extra = Arrays.copyOf(extra, cap);
+        battery = Arrays.copyOf(battery, cap);
+        water = Arrays.copyOf(water, cap);
+        avail = Arrays.copyOf(avail, cap);
+    }
+}
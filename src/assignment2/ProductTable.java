@@ -0,0 +1,244 @@
+package assignment2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import assignment2.PageRankingMain.AVLNode;
+import assignment2.PageRankingMain.Product;
+
+/**
+ * 列式商品表（struct-of-arrays，下标为 docId）
+ * <p>
+ * 1) 数值列：价格 / 评分 / 打分特征在 ProductFeatures 中，短语分 / 词级分 / 综合分为原生 double[]
+ * 2) 字典编码列：品牌与库存 / 电池 / 防水原文各存一个 int 编码（TermDictionary，按首次出现顺序编号），
+ *    品牌编码顺序即品牌首次出现的顺序
+ * 3) 长文本：标题 / 型号 / 描述写入共享的 StringArena，只存编号
+ * 4) 词频：CSR 形式的正排表，第 doc 个商品的 (termId, freq) 在 [termStart[doc], termStart[doc+1]) 区间
+ * <p>
+ * 打分循环只顺序扫描这些数组；需要完整对象时（Top-K 输出、增量引擎）用 row(doc) 按需还原一个 Product。
+ * 非线程安全：由流水线的合并阶段单线程写入，打分阶段多线程只读（各写各自区间的 score）。
+ */
+final class ProductTable {
+
+    final TermDictionary dict;                              // 词项词典（与倒排索引共享）
+    final TermDictionary brands = new TermDictionary();
+    final TermDictionary labels = new TermDictionary();     // 库存 / 电池 / 防水原文
+    final StringArena text = new StringArena();
+    final ProductFeatures features = new ProductFeatures();
+
+    int[] brand = new int[16];
+    int[] availability = new int[16];
+    int[] battery = new int[16];
+    int[] waterproof = new int[16];
+    int[] title = new int[16];
+    int[] model = new int[16];
+    int[] description = new int[16];
+    int[] totalTerms = new int[16];
+    double[] phrase = new double[16];
+    double[] word = new double[16];
+    double[] score = new double[16];
+    double[] brandMedian = new double[0];   // 品牌编码 -> 中位价（打分阶段填入）
+
+    int[] termStart = new int[17];
+    int[] termIds = new int[64];
+    int[] termFreqs = new int[64];
+    private int postings;
+    private int size;
+
+    ProductTable(TermDictionary dict) {
+        this.dict = dict;
+    }
+
+    /**
+     * 追加一个已分词的商品，返回 docId。
+     * intern 模式下 termFreq 中的 id 经 remap 映射为全局 id（remap 为 null 表示已是全局 id）；
+     * avl 模式下按中序遍历把词项 intern 进全局词典。
+     */
+    int add(Product p, int[] remap, double phraseScore) {
+        int doc = size;
+        ensure(doc + 1);
+        brand[doc] = brands.intern(p.brand);
+        availability[doc] = labels.intern(p.availability);
+        battery[doc] = labels.intern(p.batteryType);
+        waterproof[doc] = labels.intern(p.waterproof);
+        title[doc] = text.add(p.title);
+        model[doc] = text.add(p.model);
+        description[doc] = text.add(p.description);
+        totalTerms[doc] = p.totalTerms;
+        phrase[doc] = phraseScore;
+        features.set(doc, p);
+
+        if (p.tf != null) {
+            addTree(p.tf.root);
+        } else {
+            IntIntMap tf = p.termFreq;
+            for (int slot = 0; slot < tf.capacity(); slot++) {
+                if (tf.occupied(slot)) {
+                    int t = tf.keyAt(slot);
+                    addPosting(remap == null ? t : remap[t], tf.valueAt(slot));
+                }
+            }
+        }
+        termStart[doc + 1] = postings;
+        return size++;
+    }
+
+    private void addTree(AVLNode n) {
+        if (n == null) {
+            return;
+        }
+        addTree(n.left);
+        addPosting(dict.intern(n.key), n.freq);
+        addTree(n.right);
+    }
+
+    private void addPosting(int termId, int freq) {
+        if (postings == termIds.length) {
+            termIds = Arrays.copyOf(termIds, postings * 2);
+            termFreqs = Arrays.copyOf(termFreqs, postings * 2);
+        }
+        termIds[postings] = termId;
+        termFreqs[postings] = freq;
+        postings++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int postings() {
+        return postings;
+    }
+
+    /** 快照恢复用：把行数设为 n、正排词项数设为 postings（容量足够），随后由 IndexSnapshot 逐列填入 */
+    void resize(int n, int postings) {
+        ensure(n);
+        features.resize(n);
+        if (termIds.length < postings) {
+            termIds = new int[postings];
+            termFreqs = new int[postings];
+        }
+        this.size = n;
+        this.postings = postings;
+    }
+
+    /* ====================== 按需还原 ====================== */
+
+    String brandName(int doc) {
+        return brands.term(brand[doc]);
+    }
+
+    /** 还原第 doc 行为完整的 Product（含语料与全局 termId 词频），供输出与增量引擎使用 */
+    Product row(int doc) {
+        Product p = new Product();
+        p.brand = brands.term(brand[doc]);
+        p.model = text.get(model[doc]);
+        p.title = text.get(title[doc]);
+        p.description = text.get(description[doc]);
+        p.price = features.price[doc];
+        p.rating = features.rating[doc];
+        p.availability = labels.term(availability[doc]);
+        p.batteryType = labels.term(battery[doc]);
+        p.waterproof = labels.term(waterproof[doc]);
+        p.corpus = PageRankingMain.buildCorpus(p.title, p.description, p.batteryType, p.waterproof);
+        p.termFreq = new IntIntMap();
+        for (int i = termStart[doc]; i < termStart[doc + 1]; i++) {
+            p.termFreq.add(termIds[i], termFreqs[i]);
+        }
+        p.totalTerms = totalTerms[doc];
+        p.docId = doc;
+        p.score = score[doc];
+        return p;
+    }
+
+    List<Product> rows(int[] docs) {
+        List<Product> out = new ArrayList<>(docs.length);
+        for (int doc : docs) {
+            out.add(row(doc));
+        }
+        return out;
+    }
+
+    /**
+     * 第 doc 行词频最高的 k 个词项（频次降序，同频按词项字典序），把它们在正排表中的下标写入 out，返回个数。
+     * 直接在正排区间上维护容量为 k 的最小堆（堆顶为当前最差），O(V log k)，不生成条目列表。
+     */
+    int topTerms(int doc, int k, int[] out) {
+        int size = 0;
+        for (int i = termStart[doc], end = termStart[doc + 1]; i < end; i++) {
+            if (size < k) {
+                out[size] = i;
+                termSiftUp(out, size++);
+            } else if (k > 0 && termWorse(out[0], i)) {
+                out[0] = i;
+                termSiftDown(out, 0, size);
+            }
+        }
+        // 堆排序：依次把最差者换到末尾，结果从好到差
+        for (int n = size - 1; n > 0; n--) {
+            int x = out[0];
+            out[0] = out[n];
+            out[n] = x;
+            termSiftDown(out, 0, n);
+        }
+        return size;
+    }
+
+    // 正排下标 a 比 b 差：频次低，或同频时词项字典序靠后
+    private boolean termWorse(int a, int b) {
+        if (termFreqs[a] != termFreqs[b]) {
+            return termFreqs[a] < termFreqs[b];
+        }
+        return dict.term(termIds[a]).compareTo(dict.term(termIds[b])) > 0;
+    }
+
+    private void termSiftUp(int[] heap, int i) {
+        int x = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!termWorse(x, heap[parent])) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = x;
+    }
+
+    private void termSiftDown(int[] heap, int i, int n) {
+        int x = heap[i];
+        int half = n >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < n && termWorse(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!termWorse(heap[child], x)) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = x;
+    }
+
+    private void ensure(int n) {
+        if (n <= brand.length) {
+            return;
+        }
+        int cap = Math.max(n, brand.length * 2);
+        brand = Arrays.copyOf(brand, cap);
+        availability = Arrays.copyOf(availability, cap);
+        battery = Arrays.copyOf(battery, cap);
+        waterproof = Arrays.copyOf(waterproof, cap);
+        title = Arrays.copyOf(title, cap);
+        model = Arrays.copyOf(model, cap);
+        description = Arrays.copyOf(description, cap);
+        totalTerms = Arrays.copyOf(totalTerms, cap);
+        phrase = Arrays.copyOf(phrase, cap);
+        word = Arrays.copyOf(word, cap);
+        score = Arrays.copyOf(score, cap);
+        termStart = Arrays.copyOf(termStart, cap + 1);
+    }
+}
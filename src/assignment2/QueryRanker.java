@@ -0,0 +1,310 @@
+package assignment2;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 查询时排序：BM25 文本相关度 + 评分 / 价格 / 加成（与批处理相同的权重）
+ * <p>
+ * 1) 文本分：BM25，idf = ln(1 + (N - df + 0.5) / (df + 0.5))，长度归一化用文档总词数（Product.totalTerms）
+ * 2) 综合分 = wText × BM25 + (wRate × ratingNorm + wPrice × priceFactor + wExtra × extra)，
+ *    括号内的静态分与查询无关，构造时按列一次算好
+ * 3) Block-Max WAND：每个查询词一个 postings 游标，按当前 docId 排序后累加各词得分上界与静态分最大值，
+ *    未超过当前第 K 名的前缀整体跳过；选出 pivot 后再用块级上界复核（postings 每 POSTING_BLOCK 个一块、
+ *    静态分按 docId 每 2^STATIC_SHIFT 个一块的最大值），块内不可能进榜时直接跳到最近的块边界；
+ *    游标前进用 galloping 查找，只有可能进榜的文档才完整打分
+ * <p>
+ * 匹配语义为 OR：至少含一个查询词的商品参与排序。结果与逐文档穷举（exhaustive）完全一致。
+ * 非线程安全（scored 统计）；index / table 在构造后不应再修改。
+ */
+final class QueryRanker {
+
+    static final double DEFAULT_K1 = 1.2;
+    static final double DEFAULT_B = 0.75;
+
+    private static final int END = Integer.MAX_VALUE;
+    private static final int POSTING_BLOCK = 64;
+    private static final int STATIC_SHIFT = 8;
+
+    private final InvertedIndex index;
+    private final TermNormalizer normalizer;
+    private final int numDocs;
+    private final double k1;
+
+    private final double[] lenNorm;      // doc -> k1 × (1 - b + b × dl / avgdl)
+    private final double[] staticScore;  // doc -> 与查询无关的部分
+    private final double staticMax;
+    private final double[] staticBlockMax;   // docId >> STATIC_SHIFT -> 块内静态分最大值
+    private final double[] maxPart;          // termId -> max tf×(k1+1)/(tf+lenNorm)，WAND 上界用
+    private final int[][] blockLast;         // termId -> 每块最后一个 docId
+    private final double[][] blockMax;       // termId -> 每块的 max tf×(k1+1)/(tf+lenNorm)
+
+    /** 最近一次查询完整打分的文档数（观察剪枝效果） */
+    int scored;
+
+    QueryRanker(InvertedIndex index, ProductTable table) {
+        this(index, table, TermNormalizer.NONE);
+    }
+
+    /** normalizer 须与建索引时相同，查询词才能对上词典 */
+    QueryRanker(InvertedIndex index, ProductTable table, TermNormalizer normalizer) {
+        this(index, table, normalizer, DEFAULT_K1, DEFAULT_B);
+    }
+
+    QueryRanker(InvertedIndex index, ProductTable table, TermNormalizer normalizer, double k1, double b) {
+        this.index = index;
+        this.normalizer = normalizer;
+        this.numDocs = index.numDocs();
+        this.k1 = k1;
+
+        long total = 0;
+        for (int doc = 0; doc < numDocs; doc++) {
+            total += index.docLength(doc);
+        }
+        double avgdl = numDocs == 0 ? 1.0 : Math.max(1.0, (double) total / numDocs);
+        lenNorm = new double[numDocs];
+        staticScore = new double[numDocs];
+        staticBlockMax = new double[(numDocs >> STATIC_SHIFT) + 1];
+        Arrays.fill(staticBlockMax, Double.NEGATIVE_INFINITY);
+        double max = Double.NEGATIVE_INFINITY;
+        ProductFeatures f = table.features;
+        for (int doc = 0; doc < numDocs; doc++) {
+            lenNorm[doc] = k1 * (1 - b + b * index.docLength(doc) / avgdl);
+            double pf = PageRankingMain.priceFactor(f.price[doc], table.brandMedian[table.brand[doc]]);
+            staticScore[doc] = PageRankingMain.wRate * f.ratingNorm[doc] + PageRankingMain.wPrice * pf
+                    + PageRankingMain.wExtra * f.extra[doc];
+            max = Math.max(max, staticScore[doc]);
+            int blk = doc >> STATIC_SHIFT;
+            staticBlockMax[blk] = Math.max(staticBlockMax[blk], staticScore[doc]);
+        }
+        staticMax = max;
+
+        int terms = index.dict.size();
+        maxPart = new double[terms];
+        blockLast = new int[terms][];
+        blockMax = new double[terms][];
+        for (int t = 0; t < terms; t++) {
+            int n = index.docFreq(t);
+            if (n == 0) {
+                continue;
+            }
+            int[] d = index.postingDocs(t), fr = index.postingFreqs(t);
+            int blocks = (n + POSTING_BLOCK - 1) / POSTING_BLOCK;
+            int[] last = blockLast[t] = new int[blocks];
+            double[] bm = blockMax[t] = new double[blocks];
+            double m = 0;
+            for (int i = 0; i < n; i++) {
+                double x = part(fr[i], d[i]);
+                int blk = i / POSTING_BLOCK;
+                bm[blk] = Math.max(bm[blk], x);
+                last[blk] = d[i];
+                m = Math.max(m, x);
+            }
+            maxPart[t] = m;
+        }
+    }
+
+    /* ====================== 查询 ====================== */
+
+    /** Block-Max WAND 检索 Top-k；查询按与语料相同的规则分词并归一化，词典中没有的词忽略 */
+    TopK search(String query, int k) {
+        Cursor[] byTerm = cursors(query);
+        TopK top = new TopK(k);
+        scored = 0;
+        if (byTerm.length == 0 || k <= 0) {
+            return top;
+        }
+        Cursor[] cur = byTerm.clone();
+        int m = cur.length;
+        while (true) {
+            sortByDoc(cur);
+            double threshold = top.threshold();
+            double slack = 1e-9 * Math.max(1.0, Math.abs(threshold));   // 上界与实际分的舍入差
+            double acc = staticMax;
+            int pivot = -1;
+            for (int i = 0; i < m && cur[i].doc != END; i++) {
+                acc += cur[i].upper;
+                if (acc > threshold - slack) {
+                    pivot = i;
+                    break;
+                }
+            }
+            if (pivot < 0) {
+                break;      // 剩余文档的上界都进不了榜
+            }
+            int pivotDoc = cur[pivot].doc;
+            while (pivot + 1 < m && cur[pivot + 1].doc == pivotDoc) {
+                pivot++;    // 同在 pivotDoc 上的游标都可能贡献
+            }
+
+            // 块级复核：[pivotDoc, next) 内的文档只可能含 cur[0..pivot] 的词，且都落在各自的当前块内
+            int blk = pivotDoc >> STATIC_SHIFT;
+            double blockBound = staticBlockMax[blk];
+            int next = Math.min((blk + 1) << STATIC_SHIFT, pivot + 1 < m ? cur[pivot + 1].doc : END);
+            for (int i = 0; i <= pivot; i++) {
+                blockBound += cur[i].blockUpper(pivotDoc);
+                next = Math.min(next, cur[i].blockEnd() == END ? END : cur[i].blockEnd() + 1);
+            }
+            if (blockBound <= threshold - slack) {
+                for (int i = 0; i <= pivot; i++) {
+                    cur[i].advance(next);
+                }
+                continue;
+            }
+
+            if (cur[0].doc == pivotDoc) {
+                top.offer(pivotDoc, score(byTerm, pivotDoc));
+                scored++;
+                for (int i = 0; i <= pivot; i++) {
+                    cur[i].advance(pivotDoc + 1);
+                }
+            } else {
+                for (int i = 0; i < pivot && cur[i].doc < pivotDoc; i++) {
+                    cur[i].advance(pivotDoc);
+                }
+            }
+        }
+        return top;
+    }
+
+    /** 逐文档穷举（对照用）：遍历全部 postings 累加后再收集 Top-k */
+    TopK searchExhaustive(String query, int k) {
+        Cursor[] byTerm = cursors(query);
+        TopK top = new TopK(k);
+        scored = 0;
+        boolean[] hit = new boolean[numDocs];
+        for (Cursor c : byTerm) {
+            for (int i = 0; i < c.n; i++) {
+                hit[c.docs[i]] = true;
+            }
+        }
+        for (int doc = 0; doc < numDocs; doc++) {
+            if (hit[doc]) {
+                for (Cursor c : byTerm) {
+                    c.advance(doc);
+                }
+                top.offer(doc, score(byTerm, doc));
+                scored++;
+            }
+        }
+        return top;
+    }
+
+    /* ====================== 内部实现 ====================== */
+
+    private double part(int tf, int doc) {
+        return tf * (k1 + 1) / (tf + lenNorm[doc]);
+    }
+
+    // 各词按查询中的顺序累加（与游标排序无关，结果确定）
+    private double score(Cursor[] byTerm, int doc) {
+        double bm25 = 0;
+        for (Cursor c : byTerm) {
+            if (c.doc == doc) {
+                bm25 += c.weight * part(c.freqs[c.pos], doc);
+            }
+        }
+        return PageRankingMain.wText * bm25 + staticScore[doc];
+    }
+
+    // 查询词 -> 游标（重复的词合并为 qtf 倍权重）
+    private Cursor[] cursors(String query) {
+        List<String> tokens = PageRankingMain.tokenize(query);
+        int[] ids = new int[tokens.size()];
+        int[] qtf = new int[tokens.size()];
+        int m = 0;
+        for (String term : tokens) {
+            int t = index.dict.id(normalizer.normalize(term));
+            if (t < 0 || index.docFreq(t) == 0) {
+                continue;
+            }
+            int j = 0;
+            while (j < m && ids[j] != t) {
+                j++;
+            }
+            if (j == m) {
+                ids[m++] = t;
+            }
+            qtf[j]++;
+        }
+        Cursor[] out = new Cursor[m];
+        for (int j = 0; j < m; j++) {
+            int t = ids[j];
+            int df = index.docFreq(t);
+            double idf = Math.log(1 + (numDocs - df + 0.5) / (df + 0.5));
+            out[j] = new Cursor(index.postingDocs(t), index.postingFreqs(t), df, qtf[j] * idf,
+                    maxPart[t], blockLast[t], blockMax[t]);
+        }
+        return out;
+    }
+
+    // 查询词很少，插入排序即可
+    private static void sortByDoc(Cursor[] cur) {
+        for (int i = 1; i < cur.length; i++) {
+            Cursor x = cur[i];
+            int j = i - 1;
+            while (j >= 0 && cur[j].doc > x.doc) {
+                cur[j + 1] = cur[j];
+                j--;
+            }
+            cur[j + 1] = x;
+        }
+    }
+
+    /** 一个查询词的 postings 游标（带块级上界） */
+    private static final class Cursor {
+        final int[] docs, freqs;
+        final int n;
+        final double weight;     // qtf × idf
+        final double upper;      // wText × weight × maxPart：该词对任一文档综合分的最大贡献
+        private final double scale;  // wText × weight
+        private final int[] blockLast;
+        private final double[] blockMax;
+        int pos;
+        int doc;
+        private int block;
+
+        Cursor(int[] docs, int[] freqs, int n, double weight, double maxPart, int[] blockLast, double[] blockMax) {
+            this.docs = docs;
+            this.freqs = freqs;
+            this.n = n;
+            this.weight = weight;
+            this.scale = PageRankingMain.wText * weight;
+            this.upper = scale * maxPart;
+            this.blockLast = blockLast;
+            this.blockMax = blockMax;
+            this.doc = n > 0 ? docs[0] : END;
+        }
+
+        /** 包含 target 的块（第一个末尾 >= target 的块）的上界；之后没有文档时为 0 */
+        double blockUpper(int target) {
+            block = Math.max(block, pos / POSTING_BLOCK);
+            while (block < blockLast.length && blockLast[block] < target) {
+                block++;
+            }
+            return block < blockLast.length ? scale * blockMax[block] : 0.0;
+        }
+
+        /** blockUpper 所定位块的最后一个 docId；没有块时为 END */
+        int blockEnd() {
+            return block < blockLast.length ? blockLast[block] : END;
+        }
+
+        /** 前进到第一个 >= target 的文档（倍增后二分） */
+        void advance(int target) {
+            if (doc >= target) {
+                return;
+            }
+            int lo = pos + 1, step = 1;
+            while (lo < n && docs[lo] < target) {
+                lo += step;
+                step <<= 1;
+            }
+            int from = Math.max(pos + 1, lo - (step >> 1));
+            int to = Math.min(n, lo + 1);
+            int i = Arrays.binarySearch(docs, from, to, target);
+            pos = i >= 0 ? i : -i - 1;
+            doc = pos < n ? docs[pos] : END;
+        }
+    }
+}
@@ -0,0 +1,424 @@
+package assignment2;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+import assignment2.PageRankingMain.Product;
+
+/**
+ * 常驻的增量排序引擎：按商品增 / 改 / 删，不必重跑整个目录
+ * <p>
+ * 1) 每个商品缓存文本分（词 + 短语）；语料不变的更新（如只改价格、库存）不重新分词
+ * 2) 词项统计（文档频率、总词数）随增删即时更新
+ * 3) 品牌中位价用双 TreeMap 动态维护，O(log n) 增删；更新只重算该商品本身，O(log N)
+ * 4) 品牌中位价变化时延迟重算：品牌记入 stale（连同其商品打分时所用的中位价），
+ *    期间新写入的同品牌商品也按这个中位价打分；到下一次查询（top / brandTop）时，
+ *    中位价确实变了的品牌才整体重算一次价格项（文本分复用），O(品牌商品数 · log N)。
+ *    连续价格下中位价几乎每次都会动，所以这笔开销按"每次查询、每个变动品牌一次"计，
+ *    而不是每条更新一次；两次查询之间的大量更新只付一次
+ * 5) 全局与品牌内排行用按 (得分降序, docId 升序) 排列的 TreeSet 维护，
+ *    删除 / 降分后下一名自动补位
+ * <p>
+ * 得分公式与批处理完全相同（同一个 ProductFeatures.blend）；对外方法均为 synchronized。
+ */
+final class RankingEngine {
+
+    // 与 TopK 相同的次序：得分降序，同分 docId 升序
+    private static final Comparator<Entry> BEST_FIRST = (a, b) -> {
+        int c = Double.compare(b.product.score, a.product.score);
+        return c != 0 ? c : Integer.compare(a.product.docId, b.product.docId);
+    };
+
+    /** 一个在线商品：商品本身 + 缓存的文本分 */
+    private static final class Entry {
+        final Product product;
+        double text;
+
+        Entry(Product product) {
+            this.product = product;
+        }
+    }
+
+    private final TermDictionary dict;
+    private final TermIdTokenizer tokenizer;
+    private final IntIntMap weightById = new IntIntMap();
+    private final PhraseMatcher phrases;
+    private final ProductFeatures features = new ProductFeatures();
+
+    private final Map<String, Entry> byId = new HashMap<>();
+    private final TreeSet<Entry> global = new TreeSet<>(BEST_FIRST);
+    private final Map<String, TreeSet<Entry>> brands = new LinkedHashMap<>();
+    private final Map<String, BrandPrices> prices = new HashMap<>();
+    // 中位价已变、尚未重算的品牌 -> 其商品当前得分所用的中位价
+    private final Map<String, Double> stale = new HashMap<>();
+
+    private final IntIntMap docFreq = new IntIntMap();
+    private long totalTerms;
+    private int nextDocId;
+
+    RankingEngine(TermDictionary dict, Map<String, Integer> wordW, PhraseMatcher phrases) {
+        this(dict, TermNormalizer.NONE, wordW, phrases);
+    }
+
+    /** wordW 的键应已按 normalizer 归一化（见 TermNormalizer.normalizeWeights） */
+    RankingEngine(TermDictionary dict, TermNormalizer normalizer, Map<String, Integer> wordW, PhraseMatcher phrases) {
+        this.dict = dict;
+        this.tokenizer = new TermIdTokenizer(dict, normalizer);
+        this.phrases = phrases;
+        for (Map.Entry<String, Integer> e : wordW.entrySet()) {
+            if (e.getValue() != 0) {
+                weightById.add(dict.intern(e.getKey()), e.getValue());
+            }
+        }
+    }
+
+    /* ====================== 批量装载 ====================== */
+
+    /**
+     * 初始装载：先登记全部商品和价格，再统一计算中位价并打分（避免逐个插入时反复重算品牌）。
+     * 商品已有 termFreq（使用同一词典）时直接复用，否则重新分词。
+     * <p>
+     * 同一批中 id 重复的商品全部保留（与批处理一致，每行都参与排名）：第 2 个起依次登记为
+     * id#2、id#3 ...，增量更新按原 id 只作用于第一个。返回重复的个数，由调用方提示。
+     * 与引擎中已有商品同 id 时，新的一行替换旧的。
+     */
+    synchronized int bulkLoad(List<Product> products, Function<Product, String> idOf) {
+        List<Entry> added = new ArrayList<>(products.size());
+        Map<String, Integer> seen = new HashMap<>();
+        int duplicates = 0;
+        for (Product p : products) {
+            Entry e = new Entry(p);
+            p.docId = nextDocId++;
+            if (p.termFreq == null) {
+                tokenize(p);
+            }
+            addTermStats(p);
+            e.text = textScore(p);
+            features.set(p.docId, p);
+            String id = idOf.apply(p);
+            int n = seen.merge(id, 1, Integer::sum);
+            if (n > 1) {
+                id = id + "#" + n;
+                duplicates++;
+            }
+            Entry old = byId.put(id, e);
+            if (old != null) {
+                unlink(old);
+                removeTermStats(old.product);
+                markStale(old.product.brand);
+                removePrice(old.product);
+            }
+            // 品牌下已有商品：它们按旧中位价打的分，中位价变了要在查询前重算
+            markStale(p.brand);
+            pricesOf(p.brand).add(p.price);
+            added.add(e);
+        }
+        for (Entry e : added) {
+            e.product.score = features.blend(e.product.docId, e.text, scoredMedian(e.product.brand));
+            link(e);
+        }
+        return duplicates;
+    }
+
+    /* ====================== 增量更新 ====================== */
+
+    /** 插入或更新：id 已存在则替换（保留原 docId），返回是否为新插入 */
+    synchronized boolean upsert(String id, Product p) {
+        Entry old = byId.get(id);
+        Entry e = new Entry(p);
+        // 受影响的品牌在价格变动前登记：其商品正是按此刻的中位价打的分
+        markStale(p.brand);
+        if (old != null) {
+            markStale(old.product.brand);
+        }
+
+        if (old != null) {
+            Product q = old.product;
+            p.docId = q.docId;
+            unlink(old);
+            removePrice(q);
+            if (q.corpus.equals(p.corpus)) {
+                // 语料未变：复用词频与文本分
+                p.termFreq = q.termFreq;
+                p.totalTerms = q.totalTerms;
+                e.text = old.text;
+            } else {
+                removeTermStats(q);
+                tokenize(p);
+                addTermStats(p);
+                e.text = textScore(p);
+            }
+        } else {
+            p.docId = nextDocId++;
+            tokenize(p);
+            addTermStats(p);
+            e.text = textScore(p);
+        }
+        byId.put(id, e);
+        features.set(p.docId, p);
+        pricesOf(p.brand).add(p.price);
+
+        // 与同品牌其它商品用同一个中位价；中位价若已变，查询前整个品牌一起重算
+        p.score = features.blend(p.docId, e.text, scoredMedian(p.brand));
+        link(e);
+        return old == null;
+    }
+
+    /** 删除；id 不存在返回 false */
+    synchronized boolean delete(String id) {
+        Entry old = byId.remove(id);
+        if (old == null) {
+            return false;
+        }
+        unlink(old);
+        removeTermStats(old.product);
+        markStale(old.product.brand);
+        removePrice(old.product);
+        return true;
+    }
+
+    /* ====================== 查询 ====================== */
+
+    synchronized List<Product> top(int k) {
+        rescoreStale();
+        return firstK(global, k);
+    }
+
+    /** 品牌 -> 品牌内 Top-k（品牌按首次出现顺序） */
+    synchronized Map<String, List<Product>> brandTop(int k) {
+        rescoreStale();
+        Map<String, List<Product>> out = new LinkedHashMap<>();
+        for (Map.Entry<String, TreeSet<Entry>> e : brands.entrySet()) {
+            if (!e.getValue().isEmpty()) {
+                out.put(e.getKey(), firstK(e.getValue(), k));
+            }
+        }
+        return out;
+    }
+
+    synchronized int size() {
+        return byId.size();
+    }
+
+    synchronized int docFreq(String term) {
+        int t = dict.id(term);
+        return t < 0 ? 0 : docFreq.get(t);
+    }
+
+    synchronized long totalTerms() {
+        return totalTerms;
+    }
+
+    /* ====================== 内部实现 ====================== */
+
+    private static List<Product> firstK(TreeSet<Entry> set, int k) {
+        List<Product> out = new ArrayList<>(Math.min(k, set.size()));
+        for (Entry e : set) {
+            if (out.size() >= k) {
+                break;
+            }
+            out.add(e.product);
+        }
+        return out;
+    }
+
+    private void tokenize(Product p) {
+        p.tf = null;
+        p.termFreq = new IntIntMap();
+        p.totalTerms = tokenizer.countInto(p.corpus, p.termFreq);
+    }
+
+    // 文本分 = 词级分（与 InvertedIndex.wordScores 相同的整数累加与归一化）+ 短语分
+    private double textScore(Product p) {
+        double s = 0.0;
+        IntIntMap tf = p.termFreq;
+        for (int slot = 0; slot < tf.capacity(); slot++) {
+            if (tf.occupied(slot)) {
+                s += weightById.get(tf.keyAt(slot)) * tf.valueAt(slot);
+            }
+        }
+        if (p.totalTerms > 0) {
+            s /= Math.log(2 + p.totalTerms);
+        }
+        return s + PageRankingMain.phraseScore(p.corpus, phrases);
+    }
+
+    private void addTermStats(Product p) {
+        IntIntMap tf = p.termFreq;
+        for (int slot = 0; slot < tf.capacity(); slot++) {
+            if (tf.occupied(slot)) {
+                docFreq.increment(tf.keyAt(slot));
+            }
+        }
+        totalTerms += p.totalTerms;
+    }
+
+    private void removeTermStats(Product p) {
+        IntIntMap tf = p.termFreq;
+        for (int slot = 0; slot < tf.capacity(); slot++) {
+            if (tf.occupied(slot)) {
+                docFreq.add(tf.keyAt(slot), -1);
+            }
+        }
+        totalTerms -= p.totalTerms;
+    }
+
+    private void link(Entry e) {
+        global.add(e);
+        brands.computeIfAbsent(e.product.brand, b -> new TreeSet<>(BEST_FIRST)).add(e);
+    }
+
+    // 必须在修改 score 之前调用（TreeSet 依赖旧的排序键定位）
+    private void unlink(Entry e) {
+        global.remove(e);
+        TreeSet<Entry> set = brands.get(e.product.brand);
+        if (set != null) {
+            set.remove(e);
+        }
+    }
+
+    // 价格变动前调用：记下品牌商品当前得分所用的中位价（已登记的保留最早的值；品牌下没有商品则无需登记）
+    private void markStale(String brand) {
+        TreeSet<Entry> set = brands.get(brand);
+        if (set != null && !set.isEmpty() && !stale.containsKey(brand)) {
+            stale.put(brand, medianOf(brand));
+        }
+    }
+
+    // 品牌商品当前得分所用的中位价
+    private double scoredMedian(String brand) {
+        Double m = stale.get(brand);
+        return m != null ? m : medianOf(brand);
+    }
+
+    // 查询前：中位价确实变了的品牌整体重算，其余只清除登记
+    private void rescoreStale() {
+        for (Map.Entry<String, Double> e : stale.entrySet()) {
+            if (medianOf(e.getKey()) != e.getValue()) {
+                rescoreBrand(e.getKey());
+            }
+        }
+        stale.clear();
+    }
+
+    // 中位价变化：文本分复用，只重算该品牌所有商品的合成分
+    private void rescoreBrand(String brand) {
+        TreeSet<Entry> set = brands.get(brand);
+        if (set == null || set.isEmpty()) {
+            return;
+        }
+        double med = medianOf(brand);
+        List<Entry> entries = new ArrayList<>(set);
+        for (Entry e : entries) {
+            unlink(e);
+            e.product.score = features.blend(e.product.docId, e.text, med);
+            link(e);
+        }
+    }
+
+    private BrandPrices pricesOf(String brand) {
+        return prices.computeIfAbsent(brand, b -> new BrandPrices());
+    }
+
+    private void removePrice(Product p) {
+        BrandPrices bp = prices.get(p.brand);
+        if (bp != null) {
+            bp.remove(p.price);
+        }
+    }
+
+    private double medianOf(String brand) {
+        BrandPrices bp = prices.get(brand);
+        return bp == null || bp.size() == 0 ? PageRankingMain.DEFAULT_MEDIAN_PRICE : bp.median();
+    }
+
+    /* ====================== 动态中位数（双 TreeMap 多重集） ====================== */
+
+    /**
+     * low 存较小的 n/2 个价格，high 存其余；中位数（排序后下标 n/2）即 high 的最小值。
+     * price <= 0 的不计入，与 BrandMedians 一致。
+     */
+    static final class BrandPrices {
+        private final TreeMap<Double, Integer> low = new TreeMap<>();
+        private final TreeMap<Double, Integer> high = new TreeMap<>();
+        private int lowSize, highSize;
+
+        void add(double x) {
+            if (x <= 0) {
+                return;
+            }
+            if (highSize > 0 && x >= high.firstKey()) {
+                put(high, x);
+                highSize++;
+            } else {
+                put(low, x);
+                lowSize++;
+            }
+            rebalance();
+        }
+
+        void remove(double x) {
+            if (x <= 0) {
+                return;
+            }
+            if (take(high, x)) {
+                highSize--;
+            } else if (take(low, x)) {
+                lowSize--;
+            } else {
+                return;
+            }
+            rebalance();
+        }
+
+        int size() {
+            return lowSize + highSize;
+        }
+
+        double median() {
+            return high.firstKey();
+        }
+
+        private void rebalance() {
+            int target = size() / 2;
+            while (lowSize > target) {
+                double x = low.lastKey();
+                take(low, x);
+                lowSize--;
+                put(high, x);
+                highSize++;
+            }
+            while (lowSize < target) {
+                double x = high.firstKey();
+                take(high, x);
+                highSize--;
+                put(low, x);
+                lowSize++;
+            }
+        }
+
+        private static void put(TreeMap<Double, Integer> m, double x) {
+            m.merge(x, 1, Integer::sum);
+        }
+
+        private static boolean take(TreeMap<Double, Integer> m, double x) {
+            Integer c = m.get(x);
+            if (c == null) {
+                return false;
+            }
+            if (c == 1) {
+                m.remove(x);
+            } else {
+                m.put(x, c - 1);
+            }
+            return true;
+        }
+    }
+}
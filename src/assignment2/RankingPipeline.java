@@ -0,0 +1,332 @@
+package assignment2;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import assignment2.PageRankingMain.CsvRow;
+import assignment2.PageRankingMain.Product;
+
+/**
+ * 分阶段的读取 / 分词 / 打分流水线
+ * <p>
+ * 1) 读取：主线程按 chunkSize 行分块流式读取 CSV，不必先把整个文件读成 List
+ * 2) 分词：每块提交到 ForkJoinPool（work-stealing），块内使用局部词典 + IntIntMap 计数
+ *    短语分只依赖语料，也在此阶段并行算好
+ * 3) 合并：按块的原始顺序依次写入列式商品表 ProductTable 与全局倒排索引（局部 termId 重映射为全局 termId），
+ *    docId 与文件行序一致；块内的临时 Product 随即丢弃，在途块数受限，内存不会随文件大小无限增长
+ * 4) 打分：品牌中位价（合并阶段已流式累加到 BrandMedians）与词级分算完后，按区间递归拆分并行计算综合分，
+ *    只顺序读写 ProductTable 的原生数组列；每个区间顺手收集一份有界排行榜（Leaderboard），再两两合并；
+ *    开启打分明细（explain）时另把各分量写入预先分配的 ScoreExplain 列
+ * <p>
+ * 指定 TermNormalizer 时分词阶段同时做词项归一化，结束后报告词表收缩与分词吞吐。
+ * <p>
+ * 多文件分片时阶段 1~3 与阶段 4 分开调用（ingestShard / rankShard），其间由 ShardedRanking 合并各分片的品牌价格。
+ * <p>
+ * 指定快照文件时，阶段 1~3 的结果直接从 IndexSnapshot 恢复；快照缺失或过期则照常建好后写回。
+ * <p>
+ * 每个商品的得分只依赖自身数据和全局只读表，运算顺序与单线程完全相同，结果逐位一致。
+ * threads = 1 时不创建线程池，全部在调用线程内顺序执行。
+ */
+final class RankingPipeline {
+
+    static final int DEFAULT_CHUNK = 4096;
+
+    // 打分阶段每个叶子任务处理的商品数
+    private static final int SCORE_GRAIN = 1024;
+
+    final InvertedIndex index = new InvertedIndex();
+    final ProductTable table = new ProductTable(index.dict);
+
+    private final int threads;
+    private final int chunkSize;
+    private final boolean useAvl;
+    private final BrandMedians medians;
+    private final TermNormalizer normalizer;
+    private boolean restored;   // 本次数据来自快照（medians 中没有逐个价格）
+    private boolean explaining;
+
+    /** 打分明细：开启后打分时按列记录各分量（见 ScoreExplain），否则为 null */
+    ScoreExplain explain;
+
+    RankingPipeline(int threads, int chunkSize, boolean useAvl) {
+        this(threads, chunkSize, useAvl, new BrandMedians());
+    }
+
+    RankingPipeline(int threads, int chunkSize, boolean useAvl, BrandMedians medians) {
+        this(threads, chunkSize, useAvl, medians, TermNormalizer.NONE);
+    }
+
+    /** run 时传入的 wordW 的键应已按 normalizer 归一化 */
+    RankingPipeline(int threads, int chunkSize, boolean useAvl, BrandMedians medians, TermNormalizer normalizer) {
+        this.threads = Math.max(1, threads);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.useAvl = useAvl;
+        this.medians = medians;
+        this.normalizer = normalizer;
+    }
+
+    /** 一个已分词的数据块；localDict 为 null 表示直接使用了全局词典 */
+    private static final class Chunk {
+        final List<Product> products;
+        final double[] phrase;
+        final TermDictionary localDict;
+
+        Chunk(List<Product> products, double[] phrase, TermDictionary localDict) {
+            this.products = products;
+            this.phrase = phrase;
+            this.localDict = localDict;
+        }
+    }
+
+    /** 跑完整条流水线；商品（含得分）留在 table 中，返回全局 Top-N 与品牌内 Top-M（docId） */
+    Leaderboard run(Path csv, Map<String, Integer> wordW, PhraseMatcher phrases, int topN, int brandTop)
+            throws IOException {
+        return run(csv, null, wordW, phrases, topN, brandTop);
+    }
+
+    /** 同上；snapshot 不为 null 时优先从快照恢复，快照不可用则从 CSV 重建并写回 */
+    Leaderboard run(Path csv, Path snapshot, Map<String, Integer> wordW, PhraseMatcher phrases, int topN,
+                    int brandTop) throws IOException {
+        ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        try {
+            build(csv, snapshot, pool, phrases);
+            return score(pool, wordW, topN, brandTop);
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /** 开启打分明细；须在 run / rankShard 之前调用 */
+    void explain(boolean on) {
+        explaining = on;
+    }
+
+    /* ====================== 分片：两阶段执行（见 ShardedRanking） ====================== */
+
+    /** 分片阶段一：读取 / 分词 / 合并（或从快照恢复），返回本分片按品牌名的价格部分结果（可与其它分片合并） */
+    BrandMedians ingestShard(Path csv, Path snapshot, PhraseMatcher phrases) throws IOException {
+        ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        try {
+            build(csv, snapshot, pool, phrases);
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+        if (restored) {
+            // 快照里只有各品牌的中位价，部分结果按价格列重新累加
+            for (int doc = 0; doc < table.size(); doc++) {
+                medians.add(table.brandName(doc), table.features.price[doc]);
+            }
+            restored = false;
+        }
+        return medians;
+    }
+
+    /** 分片阶段二：用合并后的全局中位价（品牌名 -> 中位价）打分，返回本分片的 Top-N / 品牌内 Top-M */
+    Leaderboard rankShard(Map<String, Double> brandMed, Map<String, Integer> wordW, int topN, int brandTop) {
+        table.brandMedian = brandMedians(brandMed);
+        ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        try {
+            return score(pool, wordW, topN, brandTop);
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /* ====================== 阶段 1~3：读取 / 分词 / 合并 ====================== */
+
+    private void build(Path csv, Path snapshot, ForkJoinPool pool, PhraseMatcher phrases) throws IOException {
+        if (snapshot == null) {
+            ingest(csv, pool, phrases);
+            table.brandMedian = brandMedians(medians.medians());
+        } else {
+            restoreOrBuild(csv, snapshot, pool, phrases);
+        }
+    }
+
+    private void restoreOrBuild(Path csv, Path snapshot, ForkJoinPool pool, PhraseMatcher phrases)
+            throws IOException {
+        long config = IndexSnapshot.config(medians, phrases, normalizer);
+        long t0 = System.nanoTime();
+        String reason = IndexSnapshot.load(snapshot, csv, config, index, table);
+        if (reason == null) {
+            System.err.printf("已从快照恢复 %d 个商品（%.1f ms）: %s%n",
+                    table.size(), (System.nanoTime() - t0) / 1e6, snapshot);
+            restored = true;
+            return;
+        }
+        IndexSnapshot.Source src = IndexSnapshot.source(csv);   // 先记下 CSV 状态，建索引期间若被改动下次会判定过期
+        ingest(csv, pool, phrases);
+        table.brandMedian = brandMedians(medians.medians());
+        IndexSnapshot.write(snapshot, src, config, index, table);
+        System.err.printf("%s，已从 CSV 重建并写入快照（%.1f ms）: %s%n",
+                reason, (System.nanoTime() - t0) / 1e6, snapshot);
+    }
+
+    private void ingest(Path csv, ForkJoinPool pool, PhraseMatcher phrases) throws IOException {
+        long t0 = System.nanoTime();
+        ingestChunks(csv, pool, phrases);
+        if (!normalizer.identity()) {
+            reportNormalization(System.nanoTime() - t0);
+        }
+    }
+
+    private void ingestChunks(Path csv, ForkJoinPool pool, PhraseMatcher phrases) throws IOException {
+        if (pool == null) {
+            TermIdTokenizer tokenizer = new TermIdTokenizer(index.dict, normalizer);
+            PageRankingMain.readCsvChunks(csv, chunkSize, rows -> merge(tokenize(rows, null, tokenizer, phrases)));
+            return;
+        }
+        ArrayDeque<ForkJoinTask<Chunk>> inFlight = new ArrayDeque<>();
+        PageRankingMain.readCsvChunks(csv, chunkSize, rows -> {
+            inFlight.add(pool.submit(() -> {
+                TermDictionary local = new TermDictionary();
+                return tokenize(rows, local, new TermIdTokenizer(local, normalizer), phrases);
+            }));
+            // 限制在途块数：最早的块先合并，保证顺序与内存上限
+            while (inFlight.size() > threads * 2) {
+                merge(inFlight.poll().join());
+            }
+        });
+        while (!inFlight.isEmpty()) {
+            merge(inFlight.poll().join());
+        }
+    }
+
+    // 词表收缩：见过的不同原始 token 数 -> 归一化后的词项数；吞吐按读取 + 分词 + 合并的总耗时计
+    private void reportNormalization(long ns) {
+        long tokens = 0;
+        for (int doc = 0; doc < table.size(); doc++) {
+            tokens += table.totalTerms[doc];
+        }
+        int[] vocab = normalizer.vocabulary();
+        System.err.printf("词项归一化（%s）：词表 %d -> %d（收缩 %.1f%%），%d 个词 / %.1f ms（%.2f M 词/秒），"
+                        + "实际归一化 %d 次%n",
+                normalizer.mode().name().toLowerCase(), vocab[0], vocab[1],
+                vocab[0] == 0 ? 0.0 : 100.0 * (vocab[0] - vocab[1]) / vocab[0],
+                tokens, ns / 1e6, ns == 0 ? 0.0 : tokens * 1e3 / ns, normalizer.computed());
+    }
+
+    private Chunk tokenize(List<CsvRow> rows, TermDictionary localDict, TermIdTokenizer tokenizer,
+                           PhraseMatcher phrases) {
+        List<Product> out = new ArrayList<>(rows.size());
+        double[] phrase = new double[rows.size()];
+        for (CsvRow r : rows) {
+            Product product = PageRankingMain.toProduct(r);
+            PageRankingMain.countTerms(product, useAvl, tokenizer);
+            phrase[out.size()] = PageRankingMain.phraseScore(product.corpus, phrases);
+            out.add(product);
+        }
+        return new Chunk(out, phrase, localDict);
+    }
+
+    private void merge(Chunk chunk) {
+        int[] remap = null;
+        if (chunk.localDict != null && !useAvl) {
+            remap = new int[chunk.localDict.size()];
+            for (int j = 0; j < remap.length; j++) {
+                remap[j] = index.dict.intern(chunk.localDict.term(j));
+            }
+        }
+        for (int i = 0; i < chunk.products.size(); i++) {
+            Product product = chunk.products.get(i);
+            int doc = table.add(product, remap, chunk.phrase[i]);
+            index.addDocument(table.termIds, table.termFreqs, table.termStart[doc], table.termStart[doc + 1]);
+            medians.add(product.brand, product.price);
+        }
+    }
+
+    /* ====================== 阶段 4：打分 ====================== */
+
+    // 品牌中位价按品牌编码展开成数组，打分时不再按名称查表
+    private double[] brandMedians(Map<String, Double> brandMed) {
+        double[] medByBrand = new double[table.brands.size()];
+        for (int b = 0; b < medByBrand.length; b++) {
+            medByBrand[b] = brandMed.getOrDefault(table.brands.term(b), PageRankingMain.DEFAULT_MEDIAN_PRICE);
+        }
+        return medByBrand;
+    }
+
+    private Leaderboard score(ForkJoinPool pool, Map<String, Integer> wordW, int topN, int brandTop) {
+        table.word = index.wordScores(wordW, true);   // 只遍历加权词项的 postings
+        if (!explaining) {
+            explain = null;
+        } else {
+            if (explain == null || !explain.fits(table.size())) {
+                explain = new ScoreExplain(table.size());
+            }
+            explain.bind(table, table.brandMedian);
+        }
+        ScoreTask task = new ScoreTask(0, table.size(), table.brandMedian, topN, brandTop);
+        return pool == null ? task.compute() : pool.invoke(task);
+    }
+
+    private final class ScoreTask extends RecursiveTask<Leaderboard> {
+        private static final long serialVersionUID = 1L;
+
+        private final int lo, hi;
+        private final double[] medByBrand;
+        private final int topN, brandTop;
+
+        ScoreTask(int lo, int hi, double[] medByBrand, int topN, int brandTop) {
+            this.lo = lo;
+            this.hi = hi;
+            this.medByBrand = medByBrand;
+            this.topN = topN;
+            this.brandTop = brandTop;
+        }
+
+        @Override
+        protected Leaderboard compute() {
+            if (hi - lo <= SCORE_GRAIN) {
+                Leaderboard board = new Leaderboard(topN, brandTop);
+                if (explain != null) {
+                    explainRange(board);
+                    return board;
+                }
+                ProductFeatures f = table.features;
+                int[] brand = table.brand;
+                double[] word = table.word, phrase = table.phrase, score = table.score;
+                for (int doc = lo; doc < hi; doc++) {
+                    double text = word[doc] + phrase[doc];       // 文本总体：词 + 短语
+                    score[doc] = f.blend(doc, text, medByBrand[brand[doc]]);
+                    board.offer(doc, score[doc], brand[doc]);
+                }
+                return board;
+            }
+            int mid = (lo + hi) >>> 1;
+            ScoreTask left = new ScoreTask(lo, mid, medByBrand, topN, brandTop);
+            ScoreTask right = new ScoreTask(mid, hi, medByBrand, topN, brandTop);
+            right.fork();
+            Leaderboard board = left.compute();
+            board.merge(right.join());
+            return board;
+        }
+
+        // 与上面的循环相同的运算顺序，另把价格因子写入 explain（其余分量 explain 直接引用表的列）
+        private void explainRange(Leaderboard board) {
+            ProductFeatures f = table.features;
+            int[] brand = table.brand;
+            double[] word = table.word, phrase = table.phrase, score = table.score;
+            double[] pfs = explain.price;
+            for (int doc = lo; doc < hi; doc++) {
+                double pf = PageRankingMain.priceFactor(f.price[doc], medByBrand[brand[doc]]);
+                pfs[doc] = pf;
+                score[doc] = f.blendFactor(doc, word[doc] + phrase[doc], pf);
+                board.offer(doc, score[doc], brand[doc]);
+            }
+        }
+    }
+}
\ No newline at end of file
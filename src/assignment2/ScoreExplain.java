@@ -0,0 +1,161 @@
+package assignment2;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * 打分明细（--explain 文件）：综合分的各分量按列记录，打分结束后一次写出
+ * <p>
+ * 1) 分量：word / phrase（文本分的两部分）、rating（ratingNorm）、price（priceFactor）、extra、
+ *    median（所在品牌的中位价）与 score；score = wText × (word + phrase) + wRate × rating
+ *    + wPrice × price + wExtra × extra，与排行榜上的得分逐位一致
+ * 2) 只有 price 是打分循环里临时算出的：它的列按商品数预先分配（同样大小的下一次打分复用），
+ *    循环里每个商品只多一次数组写入；其余分量本来就是 ProductTable / ProductFeatures 的列，直接引用不拷贝，
+ *    因此须在下一次打分前写出。未开启时打分循环完全不变
+ * 3) 写出经 IndexSnapshot.Out（1MB 缓冲的 FileChannel）：
+ *    - 文件名以 .jsonl / .json 结尾：第一行为权重，之后每个商品一行 JSON（含品牌、标题），按块并行格式化
+ *    - 其它：二进制列存，小端；头部为魔数、版本、商品数、品牌数与 4 个权重，随后依次为 brand 编码、
+ *      word / phrase / rating / price / extra 列、按品牌编码的中位价、score 列，末尾 8 字节为前面全部内容的 CRC32C
+ */
+final class ScoreExplain {
+
+    static final int MAGIC = 0x50524B45;     // "PRKE"
+    static final int VERSION = 1;
+
+    // JSONL 每块的商品数（一块在一个任务里格式化）
+    private static final int JSON_BLOCK = 4096;
+
+    final double[] price;
+    private int size;
+    private double[] word, phrase, rating, extra, score, medByBrand;
+    private int[] brand;
+
+    ScoreExplain(int size) {
+        this.price = new double[size];
+    }
+
+    /** 能否复用于 size 个商品的下一次打分 */
+    boolean fits(int size) {
+        return price.length == size;
+    }
+
+    /** 打分开始时记下本次用到的各列 */
+    void bind(ProductTable table, double[] medByBrand) {
+        size = table.size();
+        word = table.word;
+        phrase = table.phrase;
+        rating = table.features.ratingNorm;
+        extra = table.features.extra;
+        score = table.score;
+        brand = table.brand;
+        this.medByBrand = medByBrand;
+    }
+
+    private double median(int doc) {
+        return medByBrand[brand[doc]];
+    }
+
+    /** 按文件扩展名选择 JSONL 或二进制，返回写出的字节数 */
+    long write(Path file, ProductTable table) throws IOException {
+        String name = file.getFileName().toString().toLowerCase();
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            IndexSnapshot.Out out = new IndexSnapshot.Out(ch);
+            if (name.endsWith(".jsonl") || name.endsWith(".json")) {
+                writeJson(out, table);
+            } else {
+                writeBinary(out, table);
+            }
+            out.flush();
+            return out.length;
+        }
+    }
+
+    private void writeBinary(IndexSnapshot.Out out, ProductTable table) throws IOException {
+        out.putInt(MAGIC);
+        out.putInt(VERSION);
+        out.putInt(size);
+        out.putInt(medByBrand.length);
+        out.doubles(new double[]{PageRankingMain.wText, PageRankingMain.wRate, PageRankingMain.wPrice,
+                PageRankingMain.wExtra}, 4);
+        out.ints(brand, size);
+        out.doubles(word, size);
+        out.doubles(phrase, size);
+        out.doubles(rating, size);
+        out.doubles(price, size);
+        out.doubles(extra, size);
+        out.doubles(medByBrand, medByBrand.length);    // 按品牌编码，共 brandCount 个
+        out.doubles(score, size);
+        out.flush();
+        out.longs(new long[]{out.crc.getValue()}, 1);
+    }
+
+    // 按块并行格式化（公共 ForkJoinPool），按块的原始顺序写出；在途块数受限
+    private void writeJson(IndexSnapshot.Out out, ProductTable table) throws IOException {
+        StringBuilder head = new StringBuilder();
+        head.append("{\"weights\":{\"text\":").append(PageRankingMain.wText)
+                .append(",\"rating\":").append(PageRankingMain.wRate)
+                .append(",\"price\":").append(PageRankingMain.wPrice)
+                .append(",\"extra\":").append(PageRankingMain.wExtra).append("}}\n");
+        put(out, head.toString().getBytes(StandardCharsets.UTF_8));
+
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int limit = 2 * pool.getParallelism() + 1;
+        ArrayDeque<ForkJoinTask<byte[]>> inFlight = new ArrayDeque<>();
+        for (int from = 0; from < size; from += JSON_BLOCK) {
+            int lo = from, hi = Math.min(size, from + JSON_BLOCK);
+            inFlight.add(pool.submit(() -> jsonLines(table, lo, hi)));
+            while (inFlight.size() > limit) {
+                put(out, inFlight.poll().join());
+            }
+        }
+        while (!inFlight.isEmpty()) {
+            put(out, inFlight.poll().join());
+        }
+    }
+
+    private byte[] jsonLines(ProductTable table, int lo, int hi) {
+        StringBuilder sb = new StringBuilder((hi - lo) * 256);
+        for (int doc = lo; doc < hi; doc++) {
+            sb.append("{\"doc\":").append(doc).append(",\"brand\":");
+            quote(sb, table.brandName(doc));
+            sb.append(",\"title\":");
+            quote(sb, table.text.get(table.title[doc]));
+            sb.append(",\"word\":").append(word[doc])
+                    .append(",\"phrase\":").append(phrase[doc])
+                    .append(",\"rating\":").append(rating[doc])
+                    .append(",\"price\":").append(price[doc])
+                    .append(",\"extra\":").append(extra[doc])
+                    .append(",\"median\":").append(median(doc))
+                    .append(",\"score\":").append(score[doc]).append("}\n");
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void put(IndexSnapshot.Out out, byte[] b) throws IOException {
+        out.bytes(b, b.length);
+    }
+
+    private static void quote(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c == '\n') {
+                sb.append("\\n");
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+}
@@ -0,0 +1,179 @@
+package assignment2;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import assignment2.PageRankingMain.Product;
+
+/**
+ * 分片部分结果的文件交换（同一目录下按分片序号命名）
+ * <p>
+ * 1) shard-NNN.prices：阶段一的品牌价格部分结果（BrandMedians）
+ * 2) shard-NNN.top：阶段二的排序部分结果（ShardedRanking.ShardTop）
+ * <p>
+ * 文件头为魔数 + 版本 + 种类；字符串为 int 长度 + UTF-8 字节（长度不受 writeUTF 的 64KB 限制）。
+ * 先写临时文件再原子改名，读方看到的文件总是完整的。
+ * 分片在不同 JVM 中运行时，各进程写自己序号的文件，协调方读齐后合并。
+ */
+final class ShardExchange {
+
+    private static final int MAGIC = 0x50524B58;     // "PRKX"
+    private static final int VERSION = 2;
+    private static final int KIND_PRICES = 1;
+    private static final int KIND_TOP = 2;
+
+    private final Path dir;
+
+    ShardExchange(Path dir) throws IOException {
+        this.dir = dir;
+        Files.createDirectories(dir);
+    }
+
+    Path dir() {
+        return dir;
+    }
+
+    /* ====================== 阶段一：品牌价格 ====================== */
+
+    void writePrices(int shard, BrandMedians m) throws IOException {
+        Path file = file(shard, "prices");
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = create(tmp, KIND_PRICES)) {
+            m.writeTo(out);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    BrandMedians readPrices(int shard) throws IOException {
+        try (DataInputStream in = open(file(shard, "prices"), KIND_PRICES)) {
+            return BrandMedians.readFrom(in);
+        }
+    }
+
+    /* ====================== 阶段二：本地排行 ====================== */
+
+    void writeTop(int shard, ShardedRanking.ShardTop t) throws IOException {
+        Path file = file(shard, "top");
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = create(tmp, KIND_TOP)) {
+            out.writeInt(t.size);
+            out.writeInt(t.rows.length);
+            for (Product p : t.rows) {
+                out.writeInt(p.docId);
+                writeString(out, nz(p.brand));
+                writeString(out, nz(p.model));
+                writeString(out, nz(p.title));
+                out.writeDouble(p.price);
+                out.writeDouble(p.rating);
+                out.writeDouble(p.score);
+            }
+            writeInts(out, t.global);
+            out.writeInt(t.brands.length);
+            for (int b = 0; b < t.brands.length; b++) {
+                writeString(out, t.brands[b]);
+                writeInts(out, t.brandTop[b]);
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    ShardedRanking.ShardTop readTop(int shard) throws IOException {
+        try (DataInputStream in = open(file(shard, "top"), KIND_TOP)) {
+            int size = in.readInt();
+            Product[] rows = new Product[in.readInt()];
+            for (int i = 0; i < rows.length; i++) {
+                Product p = new Product();
+                p.docId = in.readInt();
+                p.brand = readString(in);
+                p.model = readString(in);
+                p.title = readString(in);
+                p.price = in.readDouble();
+                p.rating = in.readDouble();
+                p.score = in.readDouble();
+                rows[i] = p;
+            }
+            int[] global = readInts(in);
+            String[] brands = new String[in.readInt()];
+            int[][] brandTop = new int[brands.length][];
+            for (int b = 0; b < brands.length; b++) {
+                brands[b] = readString(in);
+                brandTop[b] = readInts(in);
+            }
+            return new ShardedRanking.ShardTop(size, rows, global, brands, brandTop);
+        }
+    }
+
+    /* ====================== 内部实现 ====================== */
+
+    private Path file(int shard, String kind) {
+        return dir.resolve(String.format("shard-%03d.%s", shard, kind));
+    }
+
+    private static DataOutputStream create(Path file, int kind) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(kind);
+        return out;
+    }
+
+    private static DataInputStream open(Path file, int kind) throws IOException {
+        if (!Files.exists(file)) {
+            throw new IOException("分片部分结果不存在: " + file);
+        }
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+        if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != kind) {
+            in.close();
+            throw new IOException("分片部分结果格式不符: " + file);
+        }
+        return in;
+    }
+
+    private static void writeInts(DataOutputStream out, int[] xs) throws IOException {
+        out.writeInt(xs.length);
+        for (int x : xs) {
+            out.writeInt(x);
+        }
+    }
+
+    private static int[] readInts(DataInputStream in) throws IOException {
+        int[] xs = new int[in.readInt()];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = in.readInt();
+        }
+        return xs;
+    }
+
+    /**
+     * 字符串写成 int 长度 + UTF-8 字节（与 IndexSnapshot 相同），没有 writeUTF 的 65535 字节上限；
+     * BrandMedians 的品牌名也经这里写出
+     */
+    static void writeString(DataOutput out, String s) throws IOException {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        int len = in.readInt();
+        if (len < 0) {
+            throw new IOException("分片部分结果损坏：字符串长度 " + len);
+        }
+        byte[] b = new byte[len];
+        in.readFully(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private static String nz(String s) {
+        return s == null ? "" : s;
+    }
+}
@@ -0,0 +1,259 @@
+package assignment2;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import assignment2.PageRankingMain.Product;
+
+/**
+ * 多文件分片排序：每个输入文件是一个分片，各自建表打分，最后合并部分结果
+ * <p>
+ * 1) 阶段一：各分片并行读取 / 分词（RankingPipeline.ingestShard），导出按品牌名的价格部分结果（BrandMedians）
+ * 2) 合并价格部分结果得到全局品牌中位价——同一品牌可能分布在多个文件中，中位价必须全局算
+ * 3) 阶段二：各分片用全局中位价打分（rankShard），只导出本地 Top-N 与品牌内 Top-M 的进榜商品（ShardTop）
+ * 4) 合并：全局 docId = 前面各分片商品数之和 + 分片内 docId（等价于按顺序拼接各文件），
+ *    用 TopK 合并得到与单文件运行逐位一致的全局结果
+ * <p>
+ * 指定交换目录时，两种部分结果都先写成文件（ShardExchange）再由协调方读回合并；
+ * 分片改为在各自的 JVM 中运行时，只需把阶段一 / 阶段二拆到各进程，文件格式与合并逻辑不变。
+ */
+final class ShardedRanking {
+
+    private final List<Path> shards;
+    private final List<Path> snapshots;     // 与 shards 对应；元素为 null 表示不用快照
+    private final RankingPipeline[] pipelines;
+    private final BrandMedians.Mode medianMode;
+    private final int medianK;
+    private final ShardExchange exchange;   // null 表示部分结果只在内存中传递
+    private final int parallel;
+
+    ShardedRanking(List<Path> shards, List<Path> snapshots, int threads, int chunkSize, boolean useAvl,
+                   BrandMedians.Mode medianMode, int medianK, TermNormalizer normalizer, Path exchangeDir)
+            throws IOException {
+        this.shards = shards;
+        this.snapshots = snapshots;
+        this.medianMode = medianMode;
+        this.medianK = medianK;
+        this.exchange = exchangeDir == null ? null : new ShardExchange(exchangeDir);
+        this.parallel = Math.max(1, Math.min(threads, shards.size()));
+        int perShard = Math.max(1, threads / shards.size());
+        this.pipelines = new RankingPipeline[shards.size()];
+        for (int i = 0; i < pipelines.length; i++) {
+            pipelines[i] = new RankingPipeline(perShard, chunkSize, useAvl,
+                    new BrandMedians(medianMode, medianK), normalizer);
+        }
+    }
+
+    /** 各分片的商品表（按分片顺序），供逐商品输出 */
+    List<ProductTable> tables() {
+        List<ProductTable> out = new ArrayList<>(pipelines.length);
+        for (RankingPipeline p : pipelines) {
+            out.add(p.table);
+        }
+        return out;
+    }
+
+    Result run(Map<String, Integer> wordW, PhraseMatcher phrases, int topN, int brandTop) throws IOException {
+        ExecutorService exec = Executors.newFixedThreadPool(parallel);
+        try {
+            long t0 = System.nanoTime();
+            List<BrandMedians> prices = forEachShard(exec, i -> {
+                BrandMedians m = pipelines[i].ingestShard(shards.get(i), snapshots.get(i), phrases);
+                if (exchange != null) {
+                    exchange.writePrices(i, m);
+                }
+                return m;
+            });
+            long t1 = System.nanoTime();
+            BrandMedians all = new BrandMedians(medianMode, medianK);
+            for (int i = 0; i < prices.size(); i++) {
+                all.merge(exchange == null ? prices.get(i) : exchange.readPrices(i));
+            }
+            Map<String, Double> brandMed = all.medians();
+            long t2 = System.nanoTime();
+            List<ShardTop> tops = forEachShard(exec, i -> {
+                Leaderboard board = pipelines[i].rankShard(brandMed, wordW, topN, brandTop);
+                ShardTop top = ShardTop.of(pipelines[i].table, board);
+                if (exchange != null) {
+                    exchange.writeTop(i, top);
+                }
+                return top;
+            });
+            long t3 = System.nanoTime();
+            if (exchange != null) {
+                for (int i = 0; i < tops.size(); i++) {
+                    tops.set(i, exchange.readTop(i));
+                }
+            }
+            Result result = merge(tops, topN, brandTop);
+            long t4 = System.nanoTime();
+            System.err.printf("分片排序：%d 个分片共 %d 个商品；读取分词 %.1f ms，中位价合并 %.1f ms，打分 %.1f ms，"
+                            + "结果合并 %.1f ms%s%n",
+                    shards.size(), result.size, (t1 - t0) / 1e6, (t2 - t1) / 1e6, (t3 - t2) / 1e6,
+                    (t4 - t3) / 1e6, exchange == null ? "" : "（经文件交换: " + exchange.dir() + "）");
+            return result;
+        } finally {
+            exec.shutdown();
+        }
+    }
+
+    /* ====================== 合并 ====================== */
+
+    /** 合并后的全局结果 */
+    static final class Result {
+        final int size;
+        final List<Product> global;
+        final Map<String, List<Product>> brands;
+
+        Result(int size, List<Product> global, Map<String, List<Product>> brands) {
+            this.size = size;
+            this.global = global;
+            this.brands = brands;
+        }
+    }
+
+    /** 按分片顺序合并部分结果；品牌按首次出现的顺序排列（与拼接后单文件运行相同） */
+    static Result merge(List<ShardTop> parts, int topN, int brandTop) {
+        TopK global = new TopK(topN);
+        Map<String, TopK> brands = new LinkedHashMap<>();
+        Map<Integer, Product> byDoc = new HashMap<>();
+        int offset = 0;
+        for (ShardTop part : parts) {
+            for (int i : part.global) {
+                Product p = part.rows[i];
+                byDoc.put(offset + p.docId, p);
+                global.offer(offset + p.docId, p.score);
+            }
+            for (int b = 0; b < part.brands.length; b++) {
+                TopK t = brands.computeIfAbsent(part.brands[b], k -> new TopK(brandTop));
+                for (int i : part.brandTop[b]) {
+                    Product p = part.rows[i];
+                    byDoc.put(offset + p.docId, p);
+                    t.offer(offset + p.docId, p.score);
+                }
+            }
+            offset += part.size;
+        }
+        Map<String, List<Product>> brandLists = new LinkedHashMap<>();
+        for (Map.Entry<String, TopK> e : brands.entrySet()) {
+            brandLists.put(e.getKey(), rows(e.getValue().sorted(), byDoc));
+        }
+        return new Result(offset, rows(global.sorted(), byDoc), brandLists);
+    }
+
+    private static List<Product> rows(int[] docs, Map<Integer, Product> byDoc) {
+        List<Product> out = new ArrayList<>(docs.length);
+        for (int doc : docs) {
+            out.add(byDoc.get(doc));
+        }
+        return out;
+    }
+
+    /**
+     * 一个分片的排序部分结果：只含进榜商品的输出字段（品牌 / 型号 / 标题 / 价格 / 评分 / 得分），
+     * docId 为分片内编号；global 与 brandTop 存 rows 的下标，从好到差
+     */
+    static final class ShardTop {
+        final int size;
+        final Product[] rows;
+        final int[] global;
+        final String[] brands;      // 按分片内首次出现的顺序
+        final int[][] brandTop;
+
+        ShardTop(int size, Product[] rows, int[] global, String[] brands, int[][] brandTop) {
+            this.size = size;
+            this.rows = rows;
+            this.global = global;
+            this.brands = brands;
+            this.brandTop = brandTop;
+        }
+
+        static ShardTop of(ProductTable table, Leaderboard board) {
+            Map<Integer, Integer> index = new LinkedHashMap<>();
+            List<Product> rows = new ArrayList<>();
+            int[] global = slots(table, board.global.sorted(), index, rows);
+            List<String> brands = new ArrayList<>();
+            List<int[]> brandTop = new ArrayList<>();
+            for (int b = 0; b < board.brandCount(); b++) {
+                TopK t = board.brand(b);
+                if (t != null) {
+                    brands.add(table.brands.term(b));
+                    brandTop.add(slots(table, t.sorted(), index, rows));
+                }
+            }
+            return new ShardTop(table.size(), rows.toArray(new Product[0]), global,
+                    brands.toArray(new String[0]), brandTop.toArray(new int[0][]));
+        }
+
+        // docId -> rows 下标；同一商品同时进全局榜和品牌榜时只存一份
+        private static int[] slots(ProductTable table, int[] docs, Map<Integer, Integer> index, List<Product> rows) {
+            int[] out = new int[docs.length];
+            for (int i = 0; i < docs.length; i++) {
+                int doc = docs[i];
+                Integer slot = index.get(doc);
+                if (slot == null) {
+                    slot = rows.size();
+                    index.put(doc, slot);
+                    rows.add(outputRow(table, doc));
+                }
+                out[i] = slot;
+            }
+            return out;
+        }
+
+        private static Product outputRow(ProductTable table, int doc) {
+            Product p = new Product();
+            p.brand = table.brandName(doc);
+            p.model = table.text.get(table.model[doc]);
+            p.title = table.text.get(table.title[doc]);
+            p.price = table.features.price[doc];
+            p.rating = table.features.rating[doc];
+            p.score = table.score[doc];
+            p.docId = doc;
+            return p;
+        }
+    }
+
+    /* ====================== 并行执行 ====================== */
+
+    private interface ShardTask<T> {
+        T run(int shard) throws IOException;
+    }
+
+    // 每个分片一个任务，结果按分片顺序返回；任务抛出的 IOException 原样抛出
+    private <T> List<T> forEachShard(ExecutorService exec, ShardTask<T> task) throws IOException {
+        List<Future<T>> futures = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            int shard = i;
+            futures.add(exec.submit(() -> task.run(shard)));
+        }
+        List<T> out = new ArrayList<>(futures.size());
+        try {
+            for (Future<T> f : futures) {
+                out.add(f.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("分片任务被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+        return out;
+    }
+}
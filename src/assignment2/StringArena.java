@@ -0,0 +1,100 @@
+package assignment2;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 共享字符串区（arena）：所有字符串以 UTF-8 字节首尾相接写入若干大页
+ * <p>
+ * 1) 每个字符串只占"字节数 + 12 字节定位信息"，没有对象头、没有单独的数组
+ * 2) 页大小固定（1MB），超长字符串单独占一页；总容量不受单个数组 2GB 上限约束
+ * 3) get(id) 时才构造 String，只在输出（Top-K、报告）时调用
+ */
+final class StringArena {
+
+    private static final int PAGE = 1 << 20;
+
+    private byte[][] pages = new byte[4][];
+    private int pageCount;
+    private int used;                       // 当前页已用字节
+
+    private long[] addr = new long[64];     // id -> (页号 << 32) | 页内偏移
+    private int[] len = new int[64];        // id -> 字节数
+    private int size;
+    private long bytes;
+
+    /** 写入一个字符串，返回其编号（按写入顺序递增） */
+    int add(String s) {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        if (pageCount == 0 || b.length > pages[pageCount - 1].length - used) {
+            newPage(Math.max(PAGE, b.length));
+        }
+        int page = pageCount - 1;
+        System.arraycopy(b, 0, pages[page], used, b.length);
+        if (size == addr.length) {
+            addr = Arrays.copyOf(addr, size * 2);
+            len = Arrays.copyOf(len, size * 2);
+        }
+        addr[size] = ((long) page << 32) | used;
+        len[size] = b.length;
+        used += b.length;
+        bytes += b.length;
+        return size++;
+    }
+
+    String get(int id) {
+        long a = addr[id];
+        return new String(pages[(int) (a >>> 32)], (int) a, len[id], StandardCharsets.UTF_8);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** 已写入的字符串字节总数 */
+    long bytes() {
+        return bytes;
+    }
+
+    /* ====================== 快照读写 ====================== */
+
+    void writeTo(IndexSnapshot.Out out) throws IOException {
+        out.putInt(pageCount);
+        for (int i = 0; i < pageCount; i++) {
+            int n = i == pageCount - 1 ? used : pages[i].length;
+            out.putInt(n);
+            out.bytes(pages[i], n);
+        }
+        out.putInt(size);
+        out.longs(addr, size);
+        out.ints(len, size);
+    }
+
+    /** 用快照内容替换当前内容；每页按实际长度分配，之后的 add 会另开新页 */
+    void readFrom(IndexSnapshot.In in) throws IOException {
+        pageCount = in.getInt();
+        pages = new byte[Math.max(4, pageCount)][];
+        bytes = 0;
+        for (int i = 0; i < pageCount; i++) {
+            int n = in.getInt();
+            pages[i] = new byte[n];
+            in.bytes(pages[i], n);
+            used = n;
+            bytes += n;
+        }
+        size = in.getInt();
+        addr = new long[Math.max(64, size)];
+        len = new int[Math.max(64, size)];
+        in.longs(addr, size);
+        in.ints(len, size);
+    }
+
+    private void newPage(int capacity) {
+        if (pageCount == pages.length) {
+            pages = Arrays.copyOf(pages, pageCount * 2);
+        }
+        pages[pageCount++] = new byte[capacity];
+        used = 0;
+    }
+}
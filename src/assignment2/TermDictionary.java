@@ -0,0 +1,148 @@
+package assignment2;
+
+import java.util.Arrays;
+
+/**
+ * 全局词典：term <-> termId 双向映射
+ * <p>
+ * 所有商品共享同一份词典，倒排索引只保存 int 形式的 termId，
+ * 避免每个商品各自持有一份 String 词项。
+ * <p>
+ * 内部为开放寻址哈希表（线性探测），除 String 外还支持直接按 char[] 区间查找，
+ * 分词时已存在的词项不会再分配新的 String。非线程安全。
+ */
+final class TermDictionary {
+
+    private int[] table = new int[64];        // 槽位存 id + 1，0 表示空
+    private String[] terms = new String[32];  // id -> term
+    private int[] hashes = new int[32];       // id -> hash（扩容时免重算）
+    private int size;
+
+    /** 返回 term 的 id；不存在则分配新 id（按首次出现顺序递增） */
+    int intern(String term) {
+        int h = hash(term);
+        int mask = table.length - 1;
+        for (int i = h & mask; ; i = (i + 1) & mask) {
+            int slot = table[i];
+            if (slot == 0) {
+                return insert(i, h, term);
+            }
+            if (hashes[slot - 1] == h && terms[slot - 1].equals(term)) {
+                return slot - 1;
+            }
+        }
+    }
+
+    /** 按 buf[off, off+len) 查找或插入；只有新词项才会构造 String */
+    int intern(char[] buf, int off, int len) {
+        int h = hash(buf, off, len);
+        int mask = table.length - 1;
+        for (int i = h & mask; ; i = (i + 1) & mask) {
+            int slot = table[i];
+            if (slot == 0) {
+                return insert(i, h, new String(buf, off, len));
+            }
+            if (hashes[slot - 1] == h && equals(terms[slot - 1], buf, off, len)) {
+                return slot - 1;
+            }
+        }
+    }
+
+    /** 只查不插：不存在返回 -1 */
+    int id(String term) {
+        int h = hash(term);
+        int mask = table.length - 1;
+        for (int i = h & mask; ; i = (i + 1) & mask) {
+            int slot = table[i];
+            if (slot == 0) {
+                return -1;
+            }
+            if (hashes[slot - 1] == h && terms[slot - 1].equals(term)) {
+                return slot - 1;
+            }
+        }
+    }
+
+    /** 只查不插（char[] 区间版）：不存在返回 -1 */
+    int id(char[] buf, int off, int len) {
+        int h = hash(buf, off, len);
+        int mask = table.length - 1;
+        for (int i = h & mask; ; i = (i + 1) & mask) {
+            int slot = table[i];
+            if (slot == 0) {
+                return -1;
+            }
+            if (hashes[slot - 1] == h && equals(terms[slot - 1], buf, off, len)) {
+                return slot - 1;
+            }
+        }
+    }
+
+    String term(int id) {
+        return terms[id];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /* ====================== 内部实现 ====================== */
+
+    private int insert(int slotIndex, int h, String term) {
+        int id = size++;
+        if (id == terms.length) {
+            terms = Arrays.copyOf(terms, id * 2);
+            hashes = Arrays.copyOf(hashes, id * 2);
+        }
+        terms[id] = term;
+        hashes[id] = h;
+        table[slotIndex] = id + 1;
+        if (size * 2 > table.length) {   // 负载因子 0.5
+            rehash();
+        }
+        return id;
+    }
+
+    private void rehash() {
+        int[] next = new int[table.length * 2];
+        int mask = next.length - 1;
+        for (int id = 0; id < size; id++) {
+            int i = hashes[id] & mask;
+            while (next[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            next[i] = id + 1;
+        }
+        table = next;
+    }
+
+    // 与 String.hashCode 相同的多项式，再做一次扰动，保证两种查找方式命中同一槽位
+    private static int hash(String s) {
+        return mix(s.hashCode());
+    }
+
+    private static int hash(char[] buf, int off, int len) {
+        int h = 0;
+        for (int i = off, end = off + len; i < end; i++) {
+            h = 31 * h + buf[i];
+        }
+        return mix(h);
+    }
+
+    private static int mix(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean equals(String term, char[] buf, int off, int len) {
+        if (term.length() != len) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (term.charAt(i) != buf[off + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
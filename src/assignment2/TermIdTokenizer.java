@@ -0,0 +1,97 @@
+package assignment2;
+
+import java.util.Arrays;
+
+/**
+ * 词项 id 分词器（intern 模式）
+ * <p>
+ * 规则与 PageRankingMain.tokenize 完全一致（小写、按非 [a-z0-9] 切分、过滤单字母与停用词），
+ * 但不做 split / 不生成中间 String：逐字符扫描到复用的 char[] 缓冲区，
+ * 直接经 TermDictionary 映射为 termId 并计入 IntIntMap。
+ * <p>
+ * 指定 TermNormalizer 时，原始 token 先映射为本地 rawId，再查 rawId -> 归一化 termId 的表：
+ * 每个不同的原始 token 只归一化一次，之后与普通 intern 一样不分配 String。
+ * <p>
+ * 每个线程各用一个实例（内部缓冲区非线程安全）。
+ */
+final class TermIdTokenizer {
+
+    // 停用词表：按 char[] 区间查找，过滤时不分配 String
+    private static final TermDictionary STOP_IDS = new TermDictionary();
+
+    static {
+        for (String s : PageRankingMain.STOP) {
+            STOP_IDS.intern(s);
+        }
+    }
+
+    private final TermDictionary dict;
+    private final TermNormalizer normalizer;
+    private final TermDictionary raw;     // 归一化模式下的原始 token 词典（否则为 null）
+    private int[] rawToTerm;              // rawId -> 归一化后的 termId + 1（0 表示尚未计算）
+    private char[] buf = new char[32];
+
+    TermIdTokenizer(TermDictionary dict) {
+        this(dict, TermNormalizer.NONE);
+    }
+
+    TermIdTokenizer(TermDictionary dict, TermNormalizer normalizer) {
+        this.dict = dict;
+        this.normalizer = normalizer;
+        this.raw = normalizer.identity() ? null : new TermDictionary();
+        this.rawToTerm = raw == null ? null : new int[64];
+    }
+
+    /** 单个原始 token 的归一化（avl 模式等 String 路径使用） */
+    String normalize(String token) {
+        return normalizer.normalize(token);
+    }
+
+    /** 分词并把 termId 计入 tf，返回本次计入的词数 */
+    int countInto(String text, IntIntMap tf) {
+        if (text == null) {
+            return 0;
+        }
+        int total = 0, len = 0;
+        for (int i = 0, n = text.length(); i <= n; i++) {
+            char c = i < n ? Character.toLowerCase(text.charAt(i)) : ' ';
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                if (len == buf.length) {
+                    buf = Arrays.copyOf(buf, len * 2);
+                }
+                buf[len++] = c;
+                continue;
+            }
+            if (len > 0 && accept(len)) {
+                tf.increment(termId(len));
+                total++;
+            }
+            len = 0;
+        }
+        return total;
+    }
+
+    private int termId(int len) {
+        if (raw == null) {
+            return dict.intern(buf, 0, len);
+        }
+        int r = raw.intern(buf, 0, len);
+        if (r >= rawToTerm.length) {
+            rawToTerm = Arrays.copyOf(rawToTerm, Math.max(r + 1, rawToTerm.length * 2));
+        }
+        int t = rawToTerm[r] - 1;
+        if (t < 0) {
+            t = dict.intern(normalizer.normalize(raw.term(r)));
+            rawToTerm[r] = t + 1;
+        }
+        return t;
+    }
+
+    // 过滤过短 token（保留单个数字如 "2"）与停用词
+    private boolean accept(int len) {
+        if (len < 2 && !(buf[0] >= '0' && buf[0] <= '9')) {
+            return false;
+        }
+        return STOP_IDS.id(buf, 0, len) < 0;
+    }
+}
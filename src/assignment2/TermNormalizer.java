@@ -0,0 +1,167 @@
+package assignment2;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 词项归一化：同义词映射 + Porter 词干（可插拔，默认不启用）
+ * <p>
+ * 1) 模式：none（原样）/ stem（只做词干）/ synonym（只做同义词）/ full（先同义词再词干）
+ * 2) 结果按原始 token 缓存（上限 MEMO_LIMIT 个不同 token），同一 token 在上百万条描述中只归一化一次；
+ *    TermIdTokenizer 另有按 rawId 的本地表，命中时连 Map 都不查
+ * 3) 含数字的 token（"30"、"ipx7"）不做词干
+ * 4) 关键词权重表也要经过同一归一化（normalizeWeights），多个词归到同一词干时取最大权重
+ * <p>
+ * 停用词与长度过滤仍按原始 token 判断，短语分直接扫描原始语料，都不受影响。线程安全。
+ */
+final class TermNormalizer {
+
+    enum Mode { NONE, STEM, SYNONYM, FULL }
+
+    static final TermNormalizer NONE = new TermNormalizer(Mode.NONE);
+
+    private static final int MEMO_LIMIT = 1 << 20;
+
+    private final Mode mode;
+    private final Map<String, String> synonyms;
+    private final Map<String, String> memo = new ConcurrentHashMap<>();
+    private final LongAdder computed = new LongAdder();
+
+    TermNormalizer(Mode mode) {
+        this(mode, defaultSynonyms());
+    }
+
+    TermNormalizer(Mode mode, Map<String, String> synonyms) {
+        this.mode = mode;
+        this.synonyms = synonyms;
+    }
+
+    Mode mode() {
+        return mode;
+    }
+
+    boolean identity() {
+        return mode == Mode.NONE;
+    }
+
+    /** 原始 token（已小写）-> 归一化后的词项 */
+    String normalize(String raw) {
+        if (mode == Mode.NONE) {
+            return raw;
+        }
+        String n = memo.get(raw);
+        if (n != null) {
+            return n;
+        }
+        n = raw;
+        if (mode != Mode.STEM) {
+            n = synonyms.getOrDefault(n, n);
+        }
+        if (mode != Mode.SYNONYM && letters(n)) {
+            n = new PorterStemmer().stem(n);
+        }
+        computed.increment();
+        if (memo.size() < MEMO_LIMIT) {
+            memo.putIfAbsent(raw, n);
+        }
+        return n;
+    }
+
+    /** 权重表的键逐个归一化；冲突时取最大权重（如 charge / charging 都归到 "charg"） */
+    Map<String, Integer> normalizeWeights(Map<String, Integer> wordW) {
+        if (mode == Mode.NONE) {
+            return wordW;
+        }
+        Map<String, Integer> out = new HashMap<>();
+        for (Map.Entry<String, Integer> e : wordW.entrySet()) {
+            out.merge(normalize(e.getKey()), e.getValue(), Math::max);
+        }
+        return out;
+    }
+
+    /** 实际执行归一化（缓存未命中）的次数 */
+    long computed() {
+        return computed.sum();
+    }
+
+    /** 已见过的原始词表大小与其归一化后的大小（缓存满后为下界） */
+    int[] vocabulary() {
+        return new int[]{memo.size(), new HashSet<>(memo.values()).size()};
+    }
+
+    /** 影响分词结果的配置（供快照指纹使用） */
+    String fingerprint() {
+        StringBuilder sb = new StringBuilder(mode.name());
+        if (mode == Mode.SYNONYM || mode == Mode.FULL) {
+            for (Map.Entry<String, String> e : new TreeMap<>(synonyms).entrySet()) {
+                sb.append(',').append(e.getKey()).append('>').append(e.getValue());
+            }
+        }
+        return sb.toString();
+    }
+
+    private static boolean letters(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 'a' || c > 'z') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* ====================== 同义词表 ====================== */
+
+    // 领域同义词：每组第一个为规范词，其余映射到它
+    static Map<String, String> defaultSynonyms() {
+        Map<String, String> m = new HashMap<>();
+        group(m, "2", "two");
+        group(m, "30", "thirty");
+        group(m, "minute", "min", "mins");
+        group(m, "second", "sec", "secs");
+        group(m, "charge", "recharge", "rechargeable", "recharging", "charger");
+        group(m, "wireless", "cordless");
+        group(m, "bluetooth", "bt");
+        group(m, "white", "whiten", "whitening", "whitens");
+        group(m, "gum", "gingival");
+        group(m, "tooth", "teeth");
+        group(m, "replacement", "refill", "refills");
+        return m;
+    }
+
+    /**
+     * 读取同义词文件：每行 "规范词 = 同义词1, 同义词2 ..."，# 开头为注释；
+     * 规范词与同义词按原始 token 的规则小写
+     */
+    static Map<String, String> loadSynonyms(Path file) throws IOException {
+        Map<String, String> m = new HashMap<>();
+        for (String line : Files.readAllLines(file)) {
+            String s = line.trim();
+            if (s.isEmpty() || s.startsWith("#")) {
+                continue;
+            }
+            int eq = s.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("同义词行格式应为 \"规范词 = 同义词1, 同义词2\": " + s);
+            }
+            String canonical = s.substring(0, eq).trim().toLowerCase();
+            group(m, canonical, s.substring(eq + 1).trim().toLowerCase().split("[,\\s]+"));
+        }
+        return m;
+    }
+
+    private static void group(Map<String, String> m, String canonical, String... alternatives) {
+        for (String a : alternatives) {
+            if (!a.isEmpty()) {
+                m.put(a, canonical);
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package assignment2;
+
+import java.util.Arrays;
+
+/**
+ * 有界 Top-K 收集器（容量为 K 的最小堆）
+ * <p>
+ * 1) 堆顶是当前 K 个里最差的一个，新商品只有比堆顶好才替换，单次 O(log K)
+ * 2) 内存 O(K)，与商品总数无关；只存 (docId, score) 两列原生数组，不持有商品对象
+ * 3) 可合并：各线程各收集一份，最后 merge 成精确的全局 Top-K
+ * <p>
+ * 排序规则：得分高者优先；同分按 docId 小者（文件中靠前者）优先，保证结果确定。
+ */
+final class TopK {
+
+    private final int k;
+    private int[] docs;
+    private double[] scores;
+    private int size;
+
+    TopK(int k) {
+        this.k = Math.max(0, k);
+        this.docs = new int[Math.min(this.k, 16)];
+        this.scores = new double[docs.length];
+    }
+
+    void offer(int doc, double score) {
+        if (size < k) {
+            if (size == docs.length) {
+                int cap = Math.min(k, size * 2 + 1);
+                docs = Arrays.copyOf(docs, cap);
+                scores = Arrays.copyOf(scores, cap);
+            }
+            siftUp(size++, doc, score);
+        } else if (k > 0 && worse(docs[0], scores[0], doc, score)) {
+            siftDown(0, size, doc, score);
+        }
+    }
+
+    void merge(TopK other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.docs[i], other.scores[i]);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** 进入 Top-K 需要超过的分数：K = 0 时为正无穷，未满时为负无穷，满了为堆顶（当前第 K 名）的分数 */
+    double threshold() {
+        if (k == 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return size < k ? Double.NEGATIVE_INFINITY : scores[0];
+    }
+
+    /** 结果 docId 从好到差排列 */
+    int[] sorted() {
+        int[] out = new int[size];
+        sortInto(out, new double[size]);
+        return out;
+    }
+
+    /** 与 sorted() 一一对应的得分 */
+    double[] sortedScores() {
+        double[] out = new double[size];
+        sortInto(new int[size], out);
+        return out;
+    }
+
+    // 在副本上堆排序（不破坏本堆）：依次弹出最差者，从后往前填
+    private void sortInto(int[] outDocs, double[] outScores) {
+        TopK copy = new TopK(k);
+        copy.docs = Arrays.copyOf(docs, size);
+        copy.scores = Arrays.copyOf(scores, size);
+        for (int n = size; n > 0; n--) {
+            outDocs[n - 1] = copy.docs[0];
+            outScores[n - 1] = copy.scores[0];
+            copy.siftDown(0, n - 1, copy.docs[n - 1], copy.scores[n - 1]);
+        }
+    }
+
+    /* ====================== 最小堆（堆顶为最差） ====================== */
+
+    // (da, sa) 比 (db, sb) 差
+    private static boolean worse(int da, double sa, int db, double sb) {
+        int c = Double.compare(sa, sb);
+        return c != 0 ? c < 0 : da > db;
+    }
+
+    private void siftUp(int i, int doc, double score) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!worse(doc, score, docs[parent], scores[parent])) {
+                break;
+            }
+            docs[i] = docs[parent];
+            scores[i] = scores[parent];
+            i = parent;
+        }
+        docs[i] = doc;
+        scores[i] = score;
+    }
+
+    // 把 (doc, score) 放到位置 i 并下沉；堆的有效长度为 n
+    private void siftDown(int i, int n, int doc, double score) {
+        int half = n >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < n && worse(docs[child + 1], scores[child + 1], docs[child], scores[child])) {
+                child++;
+            }
+            if (!worse(docs[child], scores[child], doc, score)) {
+                break;
+            }
+            docs[i] = docs[child];
+            scores[i] = scores[child];
+            i = child;
+        }
+        docs[i] = doc;
+        scores[i] = score;
+    }
+}
@@ -0,0 +1,145 @@
+package assignment2;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 批量权重扫描：一次算好四个分量，再对一批权重向量 (wText, wRate, wPrice, wExtra) 同时重排
+ * <p>
+ * 1) 分量列：text = 词级分 + 短语分，ratingNorm，priceFactor(价格, 品牌中位价)，extra；每个商品只算一次
+ * 2) 扫描按商品分块（BLOCK 个一块），每块的四列留在缓存里，依次用每个权重向量算出整块得分，
+ *    内层是对 double[] 的无分支线性组合，可被 JIT 自动向量化；再逐个送入该向量的 TopK（满堆时 O(1) 拒绝）
+ * 3) 商品区间递归拆分并行（ForkJoin），各区间的 TopK 逐个向量合并
+ * <p>
+ * 线性组合的运算顺序与 ProductFeatures.blend 相同，权重取默认值时结果与主流程逐位一致。
+ */
+final class WeightSweep {
+
+    private static final int BLOCK = 512;
+    private static final int GRAIN = 16 * BLOCK;
+
+    private final double[][] weights;     // weights[j] = {wText, wRate, wPrice, wExtra}
+    private final int n;
+    private final double[] text, rate, price, extra;
+
+    /** 从已打分的商品表取出四个分量列 */
+    WeightSweep(ProductTable table, double[][] weights) {
+        this.weights = weights;
+        this.n = table.size();
+        this.text = new double[n];
+        this.rate = new double[n];
+        this.price = new double[n];
+        this.extra = new double[n];
+        ProductFeatures f = table.features;
+        for (int doc = 0; doc < n; doc++) {
+            text[doc] = table.word[doc] + table.phrase[doc];
+            rate[doc] = f.ratingNorm[doc];
+            price[doc] = PageRankingMain.priceFactor(f.price[doc], table.brandMedian[table.brand[doc]]);
+            extra[doc] = f.extra[doc];
+        }
+    }
+
+    /** 对所有权重向量各求一份 Top-N；threads > 1 时并行 */
+    TopK[] run(int topN, int threads) {
+        Task task = new Task(0, n, topN);
+        if (threads <= 1) {
+            return task.compute();
+        }
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return pool.invoke(task);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private final class Task extends RecursiveTask<TopK[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final int lo, hi, topN;
+
+        Task(int lo, int hi, int topN) {
+            this.lo = lo;
+            this.hi = hi;
+            this.topN = topN;
+        }
+
+        @Override
+        protected TopK[] compute() {
+            if (hi - lo <= GRAIN) {
+                return scan();
+            }
+            int mid = (lo + hi) >>> 1;
+            Task left = new Task(lo, mid, topN);
+            Task right = new Task(mid, hi, topN);
+            right.fork();
+            TopK[] out = left.compute();
+            TopK[] other = right.join();
+            for (int j = 0; j < out.length; j++) {
+                out[j].merge(other[j]);
+            }
+            return out;
+        }
+
+        private TopK[] scan() {
+            TopK[] out = new TopK[weights.length];
+            for (int j = 0; j < out.length; j++) {
+                out[j] = new TopK(topN);
+            }
+            double[] buf = new double[BLOCK];
+            for (int b = lo; b < hi; b += BLOCK) {
+                int len = Math.min(BLOCK, hi - b);
+                for (int j = 0; j < weights.length; j++) {
+                    double wt = weights[j][0], wr = weights[j][1], wp = weights[j][2], we = weights[j][3];
+                    for (int i = 0; i < len; i++) {
+                        buf[i] = wt * text[b + i] + wr * rate[b + i] + wp * price[b + i] + we * extra[b + i];
+                    }
+                    TopK top = out[j];
+                    for (int i = 0; i < len; i++) {
+                        top.offer(b + i, buf[i]);
+                    }
+                }
+            }
+            return out;
+        }
+    }
+
+    /* ====================== 权重向量解析 ====================== */
+
+    /**
+     * spec 为文件路径时每行一个向量；否则按 ';' 分隔多个向量。
+     * 每个向量是 4 个数（逗号或空白分隔）；空行与 # 开头的行忽略。
+     */
+    static double[][] parse(String spec) throws IOException {
+        List<String> lines;
+        Path p = Paths.get(spec);
+        if (Files.isRegularFile(p)) {
+            lines = Files.readAllLines(p);
+        } else {
+            lines = List.of(spec.split(";"));
+        }
+        List<double[]> out = new ArrayList<>();
+        for (String line : lines) {
+            String s = line.trim();
+            if (s.isEmpty() || s.startsWith("#")) {
+                continue;
+            }
+            String[] parts = s.split("[,\\s]+");
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("权重向量需要 4 个数 (wText,wRate,wPrice,wExtra): " + s);
+            }
+            double[] w = new double[4];
+            for (int i = 0; i < 4; i++) {
+                w[i] = Double.parseDouble(parts[i]);
+            }
+            out.add(w);
+        }
+        return out.toArray(new double[0][]);
+    }
+}
@@ -0,0 +1,258 @@
+package assignment3;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Streaming CSV scanner (memory-mapped, fields exposed as offsets)
+ * <p>
+ * 1) Maps the file window by window and scans each byte once, tracking quote state
+ *    incrementally to find record boundaries (quoted newlines supported).
+ * 2) Each record is copied into a reused byte[]; fields are kept as [start, end) offsets
+ *    and accessed by column index.
+ * 3) UTF-8 decoding and quote unescaping only happen when get(col) is called.
+ * <p>
+ * Parsing semantics match the previous readLine + countQuotes + parseCsvLine code:
+ * - a record ends at an unquoted \n, \r\n or \r; an empty line is a record with one empty field
+ * - a quote may appear anywhere in a field and toggles quote state; "" inside quotes is one "
+ * - \r\n and a lone \r inside quotes both become \n
+ * <p>
+ * The window doubles when a single record does not fit, so files beyond the 2 GB
+ * mapping limit are fine.
+ */
+final class CsvScanner implements Closeable {
+
+    static final int DEFAULT_WINDOW = 64 << 20;
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private int windowSize;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private int windowLen;
+
+    private long pos;                       // file offset of the next record
+
+    private byte[] record = new byte[1024]; // bytes of the current record
+    private int recordLen;
+    private int[] bounds = new int[32];     // field i is [bounds[2i], bounds[2i+1])
+    private int fields;
+
+    private String[] header = new String[0];
+    private final Map<String, Integer> columns = new HashMap<>();
+
+    CsvScanner(Path p) throws IOException {
+        this(p, DEFAULT_WINDOW);
+    }
+
+    CsvScanner(Path p, int windowSize) throws IOException {
+        this.channel = FileChannel.open(p, StandardOpenOption.READ);
+        this.fileSize = channel.size();
+        this.windowSize = Math.max(1024, windowSize);
+        if (fileSize >= 3) {
+            map(0);
+            if (window.get(0) == (byte) 0xEF && window.get(1) == (byte) 0xBB && window.get(2) == (byte) 0xBF) {
+                pos = 3;    // skip UTF-8 BOM
+            }
+        }
+        if (next()) {
+            header = new String[fields];
+            for (int i = 0; i < fields; i++) {
+                header[i] = get(i);
+                columns.put(header[i], i);   // last duplicate wins, as before
+            }
+        }
+    }
+
+    /* ======================== Header ======================== */
+
+    String[] header() {
+        return header;
+    }
+
+    /** Header name -> column index (shared, read-only; referenced by CsvRow). */
+    Map<String, Integer> columns() {
+        return columns;
+    }
+
+    /* ======================== Records ======================== */
+
+    /** Advance to the next record; false at end of file. */
+    boolean next() throws IOException {
+        if (pos >= fileSize) {
+            return false;
+        }
+        while (true) {
+            if (pos < windowStart || pos >= windowStart + windowLen) {
+                map(pos);
+            }
+            int start = (int) (pos - windowStart);
+            int end = scanRecord(start);
+            if (end >= 0) {
+                return true;
+            }
+            // Record crosses the window end: remap from the record start (growing the window if needed) and rescan
+            if (start == 0) {
+                windowSize = (int) Math.min(Integer.MAX_VALUE - 8, windowSize * 2L);
+            }
+            map(pos);
+        }
+    }
+
+    /** Field col as a String (decoded and unquoted); "" if out of range. */
+    String get(int col) {
+        if (col < 0 || col >= fields) {
+            return "";
+        }
+        return decode(record, bounds[2 * col], bounds[2 * col + 1]);
+    }
+
+    /** Detached copy of the current record (bytes + field offsets) for later decoding. */
+    byte[] copyRecord() {
+        return Arrays.copyOf(record, recordLen);
+    }
+
+    int[] copyBounds() {
+        return Arrays.copyOf(bounds, 2 * fields);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /* ======================== Decoding ======================== */
+
+    /** Decode raw[start, end) as UTF-8, applying CSV quote rules. */
+    static String decode(byte[] raw, int start, int end) {
+        int i = start;
+        while (i < end && raw[i] != '"' && raw[i] != '\r') {
+            i++;
+        }
+        if (i == end) {
+            return new String(raw, start, end - start, StandardCharsets.UTF_8);
+        }
+        byte[] out = new byte[end - start];
+        int n = i - start;
+        System.arraycopy(raw, start, out, 0, n);
+        boolean inQ = false;
+        for (; i < end; i++) {
+            byte b = raw[i];
+            if (inQ) {
+                if (b == '"') {
+                    if (i + 1 < end && raw[i + 1] == '"') {
+                        out[n++] = '"';
+                        i++;
+                    } else {
+                        inQ = false;
+                    }
+                } else if (b == '\r') {
+                    out[n++] = '\n';
+                    if (i + 1 < end && raw[i + 1] == '\n') {
+                        i++;
+                    }
+                } else {
+                    out[n++] = b;
+                }
+            } else if (b == '"') {
+                inQ = true;
+            } else {
+                out[n++] = b;
+            }
+        }
+        return new String(out, 0, n, StandardCharsets.UTF_8);
+    }
+
+    /* ======================== Internals ======================== */
+
+    private void map(long start) throws IOException {
+        windowStart = start;
+        windowLen = (int) Math.min(windowSize, fileSize - start);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, windowLen);
+    }
+
+    /**
+     * Scan one record starting at window offset start: copy its bytes, split fields, advance pos.
+     * Returns -1 when the record does not end inside this window and the file continues.
+     */
+    private int scanRecord(int start) {
+        boolean inQ = false;
+        int i = start;
+        int term = -1, after = -1;
+        for (; i < windowLen; i++) {
+            byte b = window.get(i);
+            if (b == '"') {
+                inQ = !inQ;
+            } else if (!inQ && (b == '\n' || b == '\r')) {
+                term = i;
+                after = i + 1;
+                if (b == '\r') {
+                    if (i + 1 < windowLen) {
+                        if (window.get(i + 1) == '\n') {
+                            after = i + 2;
+                        }
+                    } else if (windowStart + windowLen < fileSize) {
+                        return -1;   // \r is the last window byte; need to see whether \n follows
+                    }
+                }
+                break;
+            }
+        }
+        if (term < 0) {
+            if (windowStart + windowLen < fileSize) {
+                return -1;
+            }
+            term = after = windowLen;   // end of file; an unclosed quote ends here too
+            if (inQ && term > start && window.get(term - 1) == '\n') {
+                term--;                 // like readLine: the trailing line terminator is not part of the record
+            }
+            if (inQ && term > start && window.get(term - 1) == '\r') {
+                term--;
+            }
+        }
+
+        recordLen = term - start;
+        if (record.length < recordLen) {
+            record = new byte[Math.max(recordLen, record.length * 2)];
+        }
+        window.get(start, record, 0, recordLen);
+        splitFields();
+        pos = windowStart + after;
+        return term;
+    }
+
+    // Split on unquoted commas (quote parity is the quote state)
+    private void splitFields() {
+        fields = 0;
+        int fieldStart = 0;
+        boolean inQ = false;
+        for (int i = 0; i < recordLen; i++) {
+            byte b = record[i];
+            if (b == '"') {
+                inQ = !inQ;
+            } else if (b == ',' && !inQ) {
+                addField(fieldStart, i);
+                fieldStart = i + 1;
+            }
+        }
+        addField(fieldStart, recordLen);
+    }
+
+    private void addField(int start, int end) {
+        if (2 * fields + 1 >= bounds.length) {
+            bounds = Arrays.copyOf(bounds, bounds.length * 2);
+        }
+        bounds[2 * fields] = start;
+        bounds[2 * fields + 1] = end;
+        fields++;
+    }
+}
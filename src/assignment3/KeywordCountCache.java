@@ -0,0 +1,183 @@
+package assignment3;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-keyword count cache for PageRankingBM: one column of counts (one int per page) per entry
+ * <p>
+ * 1) Key: CSV content hash (SHA-256 of the file bytes) + ignore-case + overlap + keyword.
+ *    Under ignore-case the keyword is lower-cased first, so "Clean" and "clean" share an entry.
+ *    The engine is not part of the key: both engines give the same counts.
+ * 2) LRU eviction: entries are kept in access order and the least recently used are dropped
+ *    once the total number of cached counts exceeds the budget.
+ * 3) Optional spill file (--cache): loaded when the cache is opened and rewritten by save(),
+ *    least recently used first, via a temp file and an atomic rename. A missing, older-version,
+ *    truncated or corrupt file only means an empty cache, and PageRankingBM saves after printing
+ *    and only warns if the write fails — the cache never stops a query.
+ * <p>
+ * Bump VERSION whenever buildCorpus or the matching rules change, so stale counts are dropped.
+ */
+final class KeywordCountCache {
+
+    private static final int MAGIC = 0x50524B43;     // "PRKC"
+    private static final int VERSION = 1;
+
+    private final Path file;          // null: memory only
+    private final long maxCells;      // budget in cached ints
+    private final LinkedHashMap<String, int[]> columns = new LinkedHashMap<>(16, 0.75f, true);
+    private long cells;
+    private int hits, misses;
+
+    KeywordCountCache(Path file, long maxCells) {
+        this.file = file;
+        this.maxCells = maxCells;
+    }
+
+    /** Cache backed by a spill file; its entries are loaded now */
+    static KeywordCountCache open(Path file, long maxCells) {
+        KeywordCountCache cache = new KeywordCountCache(file, maxCells);
+        if (file != null && Files.exists(file)) {
+            try {
+                cache.load();
+            } catch (IOException e) {
+                cache.columns.clear();
+                cache.cells = 0;
+                System.err.println("Ignoring keyword cache " + file + ": " + e.getMessage());
+            }
+        }
+        return cache;
+    }
+
+    static String key(String csvHash, String keyword, boolean ignoreCase, boolean overlap) {
+        return csvHash + (ignoreCase ? "|i" : "|c") + (overlap ? "o|" : "n|")
+                + (ignoreCase ? keyword.toLowerCase() : keyword);
+    }
+
+    /** Cached counts for the key if they cover exactly pages pages, else null */
+    int[] get(String key, int pages) {
+        int[] col = columns.get(key);
+        if (col == null || col.length != pages) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return col;
+    }
+
+    void put(String key, int[] counts) {
+        int[] old = columns.put(key, counts);
+        if (old != null) cells -= old.length;
+        cells += counts.length;
+        Iterator<Map.Entry<String, int[]>> it = columns.entrySet().iterator();
+        while (cells > maxCells && columns.size() > 1) {
+            Map.Entry<String, int[]> eldest = it.next();
+            cells -= eldest.getValue().length;
+            it.remove();
+        }
+    }
+
+    int size() {
+        return columns.size();
+    }
+
+    int hits() {
+        return hits;
+    }
+
+    int misses() {
+        return misses;
+    }
+
+    Path file() {
+        return file;
+    }
+
+    /* ======================== Spill file ======================== */
+
+    /** Rewrite the spill file with the current entries (no-op without one) */
+    void save() throws IOException {
+        if (file == null) return;
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(columns.size());
+                for (Map.Entry<String, int[]> e : columns.entrySet()) {    // least recently used first
+                    out.writeUTF(e.getKey());
+                    int[] col = e.getValue();
+                    out.writeInt(col.length);
+                    ByteBuffer bytes = ByteBuffer.allocate(col.length * Integer.BYTES);
+                    bytes.asIntBuffer().put(col);
+                    out.write(bytes.array());
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(tmp);      // the old file, if any, is left as it was
+            } catch (IOException cleanup) {
+                e.addSuppressed(cleanup);
+            }
+            throw e;
+        }
+    }
+
+    // Lengths read from disk are checked before anything is allocated, so a corrupt file is an IOException
+    private void load() throws IOException {
+        long size = Files.size(file);
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("not a keyword cache of this version");
+            }
+            int entries = in.readInt();
+            if (entries < 0) throw new IOException("corrupt entry count " + entries);
+            for (int i = 0; i < entries; i++) {
+                String key = in.readUTF();
+                int length = in.readInt();
+                if (length < 0 || (long) length * Integer.BYTES > Math.min(size, Integer.MAX_VALUE)) {
+                    throw new IOException("corrupt column length " + length);
+                }
+                int[] col = new int[length];
+                byte[] bytes = new byte[col.length * Integer.BYTES];
+                in.readFully(bytes);
+                ByteBuffer.wrap(bytes).asIntBuffer().get(col);
+                put(key, col);
+            }
+        }
+    }
+
+    /** SHA-256 of the file bytes, hex */
+    static String contentHash(Path csv) throws IOException {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buf = new byte[1 << 20];
+        try (InputStream in = Files.newInputStream(csv)) {
+            int n;
+            while ((n = in.read(buf)) > 0) md.update(buf, 0, n);
+        }
+        StringBuilder sb = new StringBuilder(64);
+        for (byte b : md.digest()) sb.append(String.format("%02x", b));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,162 @@
+package assignment3;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Benchmark: per-keyword Boyer–Moore loop vs. single-scan MultiPatternMatcher
+ * <p>
+ * Keyword sets of the requested sizes are drawn deterministically from the corpus
+ * (words and two-word phrases in order of first appearance, plus a few words that never occur),
+ * so every run with the same CSV measures the same work. Both engines are checked to give
+ * identical counts for all four ignore-case / overlap combinations before timing.
+ * Like PageRankingBM, the corpora are case-folded once up front and both engines scan the folded text.
+ * <p>
+ * CLI:
+ * java assignment3.KeywordMatchBench --csv Assignment2_Data.csv --sizes 10,100,1000 --repeat 20 --runs 5
+ * <p>
+ * Args:
+ * --csv <file>          CSV path (default: Assignment2_Data.csv)
+ * --sizes <n1,n2,...>   keyword set sizes (default: 10,100,1000)
+ * --repeat <R>          scan the corpus list R times per run (default: 10)
+ * --runs <N>            timed runs after one warm-up; best is reported (default: 5)
+ * --ignore-case <true|false>, --overlap <true|false>   mode that is timed (default: true / false)
+ */
+public class KeywordMatchBench {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> arg = PageRankingBM.parseArgs(args);
+        Path path = Paths.get(arg.getOrDefault("csv", "Assignment2_Data.csv"));
+        if (!Files.exists(path)) {
+            System.err.println("CSV not found: " + path.toAbsolutePath());
+            return;
+        }
+        int repeat = Integer.parseInt(arg.getOrDefault("repeat", "10"));
+        int runs = Integer.parseInt(arg.getOrDefault("runs", "5"));
+        boolean ignoreCase = Boolean.parseBoolean(arg.getOrDefault("ignore-case", "true"));
+        boolean overlap = Boolean.parseBoolean(arg.getOrDefault("overlap", "false"));
+
+        List<String> corpora = new ArrayList<>();
+        PageRankingBM.readCsv(path, r -> corpora.add(PageRankingBM.buildCorpus(r)));
+        long chars = 0;
+        for (String c : corpora) chars += c.length();
+        System.out.printf("%d pages, %d chars, repeat=%d, ignoreCase=%b, overlap=%b%n",
+                corpora.size(), chars, repeat, ignoreCase, overlap);
+        System.out.printf("%-9s %14s %14s %9s%n", "keywords", "per-keyword ms", "multi ms", "speedup");
+
+        for (String s : arg.getOrDefault("sizes", "10,100,1000").split(",")) {
+            List<String> keywords = keywords(corpora, Integer.parseInt(s.trim()));
+            verify(corpora, keywords);
+
+            double bm = Double.MAX_VALUE, multi = Double.MAX_VALUE;
+            List<String> texts = new ArrayList<>();
+            for (String c : corpora) texts.add(ignoreCase ? c.toLowerCase() : c);
+            long sink = 0;
+            for (int run = 0; run <= runs; run++) {      // run 0 is the warm-up
+                long t0 = System.nanoTime();
+                sink += perKeyword(texts, keywords, ignoreCase, overlap, repeat);
+                long t1 = System.nanoTime();
+                sink += multi(texts, keywords, ignoreCase, overlap, repeat);
+                long t2 = System.nanoTime();
+                if (run > 0) {
+                    bm = Math.min(bm, (t1 - t0) / 1e6);
+                    multi = Math.min(multi, (t2 - t1) / 1e6);
+                }
+            }
+            System.out.printf("%-9d %14.1f %14.1f %8.1fx   (checksum %d)%n",
+                    keywords.size(), bm, multi, bm / multi, sink);
+        }
+    }
+
+    /* ======================== Engines ======================== */
+
+    // corpora are already folded when ignoreCase is set
+    static long perKeyword(List<String> corpora, List<String> keywords, boolean ignoreCase, boolean overlap,
+                           int repeat) {
+        List<PageRankingBM.BoyerMoore> matchers = new ArrayList<>();
+        for (String k : keywords) matchers.add(new PageRankingBM.BoyerMoore(k, ignoreCase));
+        long total = 0;
+        for (int r = 0; r < repeat; r++) {
+            for (String text : corpora) {
+                for (PageRankingBM.BoyerMoore bm : matchers) total += bm.countFolded(text, overlap);
+            }
+        }
+        return total;
+    }
+
+    static long multi(List<String> corpora, List<String> keywords, boolean ignoreCase, boolean overlap,
+                      int repeat) {
+        MultiPatternMatcher mm = new MultiPatternMatcher(keywords, ignoreCase);
+        int[] counts = new int[keywords.size()];
+        int[] scratch = new int[keywords.size()];
+        long total = 0;
+        for (int r = 0; r < repeat; r++) {
+            for (String text : corpora) {
+                mm.countFolded(text, overlap, counts, scratch);
+                for (int c : counts) total += c;
+            }
+        }
+        return total;
+    }
+
+    // Every page, every keyword, all four modes: the engines must agree exactly
+    static void verify(List<String> corpora, List<String> keywords) {
+        int[] counts = new int[keywords.size()];
+        for (boolean ignoreCase : new boolean[]{false, true}) {
+            MultiPatternMatcher mm = new MultiPatternMatcher(keywords, ignoreCase);
+            List<PageRankingBM.BoyerMoore> matchers = new ArrayList<>();
+            for (String k : keywords) matchers.add(new PageRankingBM.BoyerMoore(k, ignoreCase));
+            for (boolean overlap : new boolean[]{false, true}) {
+                for (String text : corpora) {
+                    mm.countIn(text, overlap, counts);
+                    for (int i = 0; i < counts.length; i++) {
+                        int expected = matchers.get(i).countIn(text, ignoreCase, overlap);
+                        if (counts[i] != expected) {
+                            throw new IllegalStateException("Count mismatch for \"" + keywords.get(i)
+                                    + "\" (ignoreCase=" + ignoreCase + ", overlap=" + overlap + "): "
+                                    + counts[i] + " vs " + expected);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /* ======================== Keyword sets ======================== */
+
+    // Roughly 3/4 single words, 1/4 two-word phrases, 1 in 10 absent; first-appearance order
+    static List<String> keywords(List<String> corpora, int n) {
+        LinkedHashSet<String> words = new LinkedHashSet<>();
+        LinkedHashSet<String> phrases = new LinkedHashSet<>();
+        for (String text : corpora) {
+            String prev = null;
+            for (String w : text.split("[^A-Za-z0-9]+")) {
+                if (w.length() < 3) {
+                    prev = null;
+                    continue;
+                }
+                words.add(w);
+                if (prev != null) phrases.add(prev + " " + w);
+                prev = w;
+            }
+        }
+        Iterator<String> wi = words.iterator(), pi = phrases.iterator();
+        LinkedHashSet<String> out = new LinkedHashSet<>();
+        for (int i = 0; out.size() < n; i++) {
+            if (i % 10 == 9) {
+                out.add("zqx" + i);
+            } else if (i % 4 == 3 && pi.hasNext()) {
+                out.add(pi.next());
+            } else if (wi.hasNext()) {
+                out.add(wi.next());
+            } else if (pi.hasNext()) {
+                out.add(pi.next());
+            } else {
+                out.add("zqx" + i);
+            }
+        }
+        return new ArrayList<>(out);
+    }
+}
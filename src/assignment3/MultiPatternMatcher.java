@@ -0,0 +1,136 @@
+package assignment3;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Wu–Manber multi-pattern matcher: counts every keyword in a single pass over the text
+ * <p>
+ * 1) Every pattern is considered through its first lmin chars (lmin = shortest pattern).
+ *    A SHIFT table indexed by a hash of the last B chars of the window (B = 2, or 1 when
+ *    lmin = 1) gives how far the window may slide without skipping any pattern start.
+ * 2) A shift of 0 means some pattern prefix may end here; the patterns whose lmin-prefix
+ *    ends with that block (HASH buckets, stored as CSR arrays) are verified char by char.
+ * 3) Occurrences are found in increasing start position, so the non-overlapping mode can
+ *    apply BoyerMoore.countIn's greedy rule per keyword: an occurrence counts only if it
+ *    starts at or after the end of that keyword's previous counted match.
+ * <p>
+ * Case folding is the same as BoyerMoore: String.toLowerCase() on patterns and text,
+ * but the text is folded once per call instead of once per keyword (or never, via countFolded
+ * on a corpus folded in advance).
+ * Immutable after construction; countIn may be called from several threads.
+ */
+final class MultiPatternMatcher {
+
+    private static final int TABLE_BITS = 14;     // ASCII pairs hash without collisions
+    private static final int MASK = (1 << TABLE_BITS) - 1;
+
+    private final char[][] pats;
+    private final boolean ignoreCase;
+    private final int lmin;
+    private final int block;
+    private final int[] shift;          // hash(block) -> safe shift
+    private final int[] bucketStart;    // hash(block) -> [bucketStart[h], bucketStart[h + 1]) in bucketPats
+    private final int[] bucketPats;     // pattern indices
+
+    MultiPatternMatcher(List<String> patterns, boolean ignoreCase) {
+        if (patterns.isEmpty()) throw new IllegalArgumentException("At least one pattern is required.");
+        this.ignoreCase = ignoreCase;
+        this.pats = new char[patterns.size()][];
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < pats.length; i++) {
+            String p = patterns.get(i);
+            if (p == null || p.isEmpty()) throw new IllegalArgumentException("Pattern must be non-empty.");
+            pats[i] = (ignoreCase ? p.toLowerCase() : p).toCharArray();
+            min = Math.min(min, pats[i].length);
+        }
+        this.lmin = min;
+        this.block = lmin >= 2 ? 2 : 1;
+
+        this.shift = new int[MASK + 1];
+        Arrays.fill(shift, lmin - block + 1);
+        int[] bucketSize = new int[MASK + 2];
+        for (char[] p : pats) {
+            for (int q = block - 1; q < lmin; q++) {
+                int h = hash(p, q);
+                shift[h] = Math.min(shift[h], lmin - 1 - q);
+            }
+            bucketSize[hash(p, lmin - 1) + 1]++;
+        }
+        this.bucketStart = new int[MASK + 2];
+        for (int h = 0; h <= MASK; h++) bucketStart[h + 1] = bucketStart[h] + bucketSize[h + 1];
+        this.bucketPats = new int[pats.length];
+        int[] fill = Arrays.copyOf(bucketStart, MASK + 1);
+        for (int i = 0; i < pats.length; i++) {
+            bucketPats[fill[hash(pats[i], lmin - 1)]++] = i;
+        }
+    }
+
+    int size() {
+        return pats.length;
+    }
+
+    /**
+     * Count occurrences of every pattern in the text; counts[i] receives pattern i's count.
+     *
+     * @param text         input text
+     * @param allowOverlap count overlapping matches if true (same meaning as BoyerMoore.countIn)
+     * @param counts       output, length >= size(); overwritten
+     */
+    void countIn(String text, boolean allowOverlap, int[] counts) {
+        if (text == null || text.isEmpty()) {
+            Arrays.fill(counts, 0, pats.length, 0);
+            return;
+        }
+        countFolded(ignoreCase ? text.toLowerCase() : text, allowOverlap, counts,
+                allowOverlap ? null : new int[pats.length]);
+    }
+
+    /**
+     * Same as countIn, for text that is already in the patterns' case; reads the String in place.
+     *
+     * @param scratch length >= size(), used by the non-overlapping mode (may be null with allowOverlap)
+     */
+    void countFolded(String text, boolean allowOverlap, int[] counts, int[] scratch) {
+        Arrays.fill(counts, 0, pats.length, 0);
+        if (text == null) return;
+        int n = text.length();
+        int[] nextFree = null;      // first start allowed per pattern
+        if (!allowOverlap) {
+            nextFree = scratch;
+            Arrays.fill(nextFree, 0, pats.length, 0);
+        }
+
+        int e = lmin - 1;   // window end
+        while (e < n) {
+            int h = hash(text, e);
+            int s = shift[h];
+            if (s > 0) {
+                e += s;
+                continue;
+            }
+            int start = e - lmin + 1;
+            for (int b = bucketStart[h], end = bucketStart[h + 1]; b < end; b++) {
+                int id = bucketPats[b];
+                char[] p = pats[id];
+                if (start + p.length > n || (nextFree != null && start < nextFree[id])) continue;
+                int j = 0;
+                while (j < p.length && text.charAt(start + j) == p[j]) j++;
+                if (j == p.length) {
+                    counts[id]++;
+                    if (nextFree != null) nextFree[id] = start + p.length;
+                }
+            }
+            e++;
+        }
+    }
+
+    // Hash of the block ending at index q: one char, or two chars packed (exact for ASCII)
+    private int hash(char[] a, int q) {
+        return block == 1 ? a[q] & MASK : ((a[q - 1] << 7) + a[q]) & MASK;
+    }
+
+    private int hash(String s, int q) {
+        return block == 1 ? s.charAt(q) & MASK : ((s.charAt(q - 1) << 7) + s.charAt(q)) & MASK;
+    }
+}
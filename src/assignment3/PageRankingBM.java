@@ -1,12 +1,13 @@
 package assignment3;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -30,6 +31,12 @@ import java.util.stream.Collectors;
  * --ignore-case <true|false>   default: true
  * --overlap <true|false>       default: false (non-overlapping matches)
  * --top <N>                    print top-N (default: all)
+ * --engine <multi|bm>          multi (default): one Wu–Manber scan per page for all keywords;
+ *                              bm: one Boyer–Moore scan per keyword (same counts, kept for comparison)
+ * --threads <N>                count pages in parallel on N ForkJoin workers (default: CPU count)
+ * --cache <file>               keep per-keyword counts in this file; later runs on the same CSV
+ *                              (same ignore-case / overlap) scan only for keywords not cached yet
+ * --cache-mb <MB>              cache budget, least recently used keywords evicted (default: 256)
  * <p>
  * Output:
  * Ranked list of pages with total occurrences and per-keyword counts.
@@ -37,78 +44,36 @@ import java.util.stream.Collectors;
 public class PageRankingBM {
 
     /* ======================== CSV support (header-based, quotes/newlines) ======================== */
+    // One record: raw bytes + field offsets; a column is decoded on first access and cached
     static class CsvRow {
-        Map<String, String> map = new HashMap<>();
+        final Map<String, Integer> columns;   // header name -> column index (shared by all rows)
+        final byte[] raw;
+        final int[] bounds;
+        private final String[] cells;
 
-        String get(String k) {
-            return map.getOrDefault(k, "");
+        CsvRow(Map<String, Integer> columns, byte[] raw, int[] bounds) {
+            this.columns = columns;
+            this.raw = raw;
+            this.bounds = bounds;
+            this.cells = new String[bounds.length / 2];
         }
-    }
 
-    static List<CsvRow> readCsv(Path p) throws IOException {
-        List<CsvRow> rows = new ArrayList<>();
-        try (BufferedReader br = Files.newBufferedReader(p, StandardCharsets.UTF_8)) {
-            String header = br.readLine();
-            if (header == null) return rows;
-            List<String> heads = parseCsvLine(header);
-
-            String line;
-            while ((line = br.readLine()) != null) {
-                // If quotes are not balanced, keep reading the next lines (multiline field)
-                while (countQuotes(line) % 2 != 0) {
-                    String next = br.readLine();
-                    if (next == null) break;
-                    line += "\n" + next;
-                }
-                List<String> cells = parseCsvLine(line);
-                CsvRow r = new CsvRow();
-                for (int i = 0; i < heads.size(); i++) {
-                    String key = heads.get(i);
-                    String val = i < cells.size() ? cells.get(i) : "";
-                    r.map.put(key, val);
-                }
-                rows.add(r);
-            }
+        String get(String k) {
+            Integer i = columns.get(k);
+            if (i == null || i >= cells.length) return "";
+            if (cells[i] == null) cells[i] = CsvScanner.decode(raw, bounds[2 * i], bounds[2 * i + 1]);
+            return cells[i];
         }
-        return rows;
     }
 
-    static List<String> parseCsvLine(String line) {
-        List<String> out = new ArrayList<>();
-        StringBuilder sb = new StringBuilder();
-        boolean inQ = false;
-        for (int i = 0; i < line.length(); i++) {
-            char c = line.charAt(i);
-            if (inQ) {
-                if (c == '"') {
-                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
-                        sb.append('"');
-                        i++; // escaped quote
-                    } else {
-                        inQ = false;
-                    }
-                } else {
-                    sb.append(c);
-                }
-            } else {
-                if (c == ',') {
-                    out.add(sb.toString());
-                    sb.setLength(0);
-                } else if (c == '"') {
-                    inQ = true;
-                } else {
-                    sb.append(c);
-                }
+    // Hands each row to the sink without keeping them all
+    static void readCsv(Path p, Consumer<CsvRow> sink) throws IOException {
+        try (CsvScanner sc = new CsvScanner(p)) {
+            if (sc.header().length == 0) return;
+            while (sc.next()) {
+                sink.accept(new CsvRow(sc.columns(), sc.copyRecord(), sc.copyBounds()));
             }
         }
-        out.add(sb.toString());
-        return out;
-    }
-
-    static int countQuotes(String s) {
-        int c = 0;
-        for (char ch : s.toCharArray()) if (ch == '"') c++;
-        return c;
     }
 
     /* ======================== Corpus Construction ======================== */
@@ -127,11 +92,40 @@ public class PageRankingBM {
         return s == null ? "" : s.replace('\n', ' ').replace('\r', ' ');
     }
 
+    /**
+     * Sort key for titles: key(a).compareTo(key(b)) has the sign of safe(a).compareToIgnoreCase(safe(b)).
+     * Each code point is folded like compareToIgnoreCase (upper, then lower case); code points from
+     * U+D800 up are written as two chars (0xD800 + plane, low 16 bits) so String order stays code point order.
+     */
+    static String titleKey(String title) {
+        String s = safe(title);
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); ) {
+            int cp = s.codePointAt(i);
+            i += Character.charCount(cp);
+            cp = Character.toLowerCase(Character.toUpperCase(cp));
+            if (cp < Character.MIN_SURROGATE) {
+                sb.append((char) cp);
+            } else {
+                sb.append((char) (Character.MIN_SURROGATE + (cp >>> 16))).append((char) cp);
+            }
+        }
+        return sb.toString();
+    }
+
     /* ======================== Boyer–Moore (bad-char + good-suffix) ======================== */
     static final class BoyerMoore {
+        private static final int ASCII = 128;
+        // countFolded switches to countScalar past PREFILTER_SLACK + i / max(PREFILTER_GAP, m) rejected
+        // candidates: the longer the pattern, the further the scalar loop skips on its own
+        private static final int PREFILTER_SLACK = 16;
+        private static final int PREFILTER_GAP = 8;
+
         private final char[] pat;     // normalized pattern
         private final int m;          // length
-        private final int[] bc;       // bad-character table: last index for each char
+        private final int[] bcAscii;  // bad-character table for chars < 128: last index, -1 if absent
+        private final char[] bcWide;  // other pattern chars, sorted (empty for ASCII patterns)
+        private final int[] bcWideLast; // last index of bcWide[k] in the pattern
         private final int[] suffix;   // suffix[k] = start index of rightmost substring matching suffix len k
         private final boolean[] prefix; // prefix[k] = suffix(len k) is also a prefix of pattern
 
@@ -141,14 +135,32 @@ public class PageRankingBM {
             String p = ignoreCase ? pattern.toLowerCase() : pattern;
             this.pat = p.toCharArray();
             this.m = pat.length;
-            this.bc = new int[Character.MAX_VALUE + 1];
-            Arrays.fill(bc, -1);
-            for (int i = 0; i < m; i++) bc[pat[i]] = i;
+            this.bcAscii = new int[ASCII];
+            Arrays.fill(bcAscii, -1);
+            TreeMap<Character, Integer> wide = new TreeMap<>();
+            for (int i = 0; i < m; i++) {
+                if (pat[i] < ASCII) bcAscii[pat[i]] = i;
+                else wide.put(pat[i], i);
+            }
+            this.bcWide = new char[wide.size()];
+            this.bcWideLast = new int[wide.size()];
+            int k = 0;
+            for (Map.Entry<Character, Integer> e : wide.entrySet()) {
+                bcWide[k] = e.getKey();
+                bcWideLast[k++] = e.getValue();
+            }
             this.suffix = new int[m];
             this.prefix = new boolean[m];
             generateGS();
         }
 
+        // Last index of c in the pattern, -1 if absent
+        private int lastIndex(char c) {
+            if (c < ASCII) return bcAscii[c];
+            int k = Arrays.binarySearch(bcWide, c);
+            return k >= 0 ? bcWideLast[k] : -1;
+        }
+
         private void generateGS() {
             Arrays.fill(suffix, -1);
             Arrays.fill(prefix, false);
@@ -183,23 +195,63 @@ public class PageRankingBM {
          */
         int countIn(String text, boolean ignoreCase, boolean allowOverlap) {
             if (text == null || text.isEmpty()) return 0;
-            String t = ignoreCase ? text.toLowerCase() : text;
-            char[] txt = t.toCharArray();
-            int n = txt.length;
+            return countFolded(ignoreCase ? text.toLowerCase() : text, allowOverlap);
+        }
+
+        /**
+         * Same as countIn, for text that is already in the pattern's case
+         * (Product.text(ignoreCase)); reads the String in place, no copy.
+         * <p>
+         * Candidates come from a first/last-char prefilter: String.indexOf(char) is a HotSpot
+         * intrinsic that scans 16-32 chars per SIMD instruction, and only positions whose first and
+         * last chars both match are verified. Once rejected candidates are denser than one per
+         * max(PREFILTER_GAP, m) chars, the rest of the text is scanned by the scalar Boyer–Moore loop.
+         * Both find the leftmost match at or after a position, so the counts are the same.
+         */
+        int countFolded(String text, boolean allowOverlap) {
+            if (text == null) return 0;
+            int n = text.length();
             if (n < m) return 0;
 
-            int count = 0, i = 0;
+            char first = pat[0], last = pat[m - 1];
+            int gap = Math.max(PREFILTER_GAP, m);
+            int count = 0, rejects = 0;
+            int i = text.indexOf(first);
+            while (i >= 0 && i <= n - m) {
+                if (text.charAt(i + m - 1) == last) {
+                    int j = m - 2;
+                    while (j > 0 && text.charAt(i + j) == pat[j]) j--;
+                    if (j <= 0) {
+                        count++;
+                        i = text.indexOf(first, allowOverlap ? i + 1 : i + m);
+                        continue;
+                    }
+                }
+                if (++rejects > PREFILTER_SLACK + i / gap) {
+                    return count + countScalar(text, i + 1, allowOverlap);
+                }
+                i = text.indexOf(first, i + 1);
+            }
+            return count;
+        }
+
+        /** Scalar Boyer–Moore (bad-char + good-suffix) count of matches starting at or after from */
+        int countScalar(String text, int from, boolean allowOverlap) {
+            int n = text.length();
+            int count = 0, i = from;
             while (i <= n - m) {
                 int j;
+                char c = 0;
                 for (j = m - 1; j >= 0; j--) {
-                    if (txt[i + j] != pat[j]) break;
+                    c = text.charAt(i + j);
+                    if (c != pat[j]) break;
                 }
                 if (j < 0) {
                     count++;
                     i += allowOverlap ? 1 : m;
                     continue;
                 }
-                int bcShift = j - bc[txt[i + j]];
+                int bcShift = j - lastIndex(c);
                 int gsShift = (j < m - 1) ? moveByGS(j) : 0;
                 i += Math.max(bcShift, gsShift > 0 ? gsShift : 1);
             }
@@ -210,13 +262,92 @@ public class PageRankingBM {
     /* ======================== Ranking Structures ======================== */
     static class Product {
         String brand, model, title, corpus;
+        String lower;   // corpus.toLowerCase(), folded on first case-insensitive query
+        String titleKey; // titleKey(title), the ranking tie-breaker
         double price, rating;
+
+        // Corpus as the matchers compare it; every keyword reuses the same folded copy
+        String text(boolean ignoreCase) {
+            if (!ignoreCase) return corpus;
+            if (lower == null && corpus != null) lower = corpus.toLowerCase();
+            return lower;
+        }
     }
 
-    static class PageResult {
-        Product prod;
-        int total;
-        Map<String, Integer> perKeyword = new LinkedHashMap<>();
+    /**
+     * Top-N pages by total desc, rating desc, title asc (ignoring case), then CSV order —
+     * the same order as a stable full sort with safe(title).compareToIgnoreCase.
+     * A bounded heap of page indices whose root is the worst page kept: O(N log K) for K = N,
+     * and the comparison reads only primitives and the precomputed Product.titleKey (no allocation).
+     */
+    static final class TopPages {
+        private final Product[] pages;
+        private final int[] total;
+
+        TopPages(List<Product> pages, int[] total) {
+            this.pages = pages.toArray(new Product[0]);
+            this.total = total;
+        }
+
+        /** Indices of the best min(k, N) pages, best first */
+        int[] top(int k) {
+            int size = 0;
+            int[] heap = new int[Math.max(0, Math.min(k, total.length))];
+            if (heap.length == 0) return heap;
+            for (int i = 0; i < total.length; i++) {
+                if (size < heap.length) {
+                    heap[size] = i;
+                    siftUp(heap, size++);
+                } else if (before(i, heap[0])) {
+                    heap[0] = i;
+                    siftDown(heap, 0, size);
+                }
+            }
+            // Pop the worst to the back until the heap is empty: heap ends up best first
+            for (int end = size - 1; end > 0; end--) {
+                int worst = heap[0];
+                heap[0] = heap[end];
+                heap[end] = worst;
+                siftDown(heap, 0, end);
+            }
+            return heap;
+        }
+
+        // true if page a ranks before page b
+        private boolean before(int a, int b) {
+            if (total[a] != total[b]) return total[a] > total[b];
+            Product pa = pages[a], pb = pages[b];
+            int cmp = Double.compare(pb.rating, pa.rating);
+            if (cmp != 0) return cmp < 0;
+            cmp = pa.titleKey.compareTo(pb.titleKey);
+            if (cmp != 0) return cmp < 0;
+            return a < b;
+        }
+
+        // Parent is never before its children (root = worst kept)
+        private void siftUp(int[] heap, int i) {
+            int x = heap[i];
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!before(heap[parent], x)) break;
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = x;
+        }
+
+        private void siftDown(int[] heap, int i, int size) {
+            int x = heap[i];
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) break;
+                if (child + 1 < size && before(heap[child], heap[child + 1])) child++;
+                if (!before(x, heap[child])) break;
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = x;
+        }
     }
 
     /* ======================== Main ======================== */
@@ -227,6 +358,9 @@ public class PageRankingBM {
         boolean ignoreCase = Boolean.parseBoolean(arg.getOrDefault("ignore-case", "true"));
         boolean overlap = Boolean.parseBoolean(arg.getOrDefault("overlap", "false"));
         int topN = arg.containsKey("top") ? Integer.parseInt(arg.get("top")) : Integer.MAX_VALUE;
+        boolean multi = !"bm".equalsIgnoreCase(arg.getOrDefault("engine", "multi"));
+        int threads = Integer.parseInt(arg.getOrDefault("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
 
         if (keywordsStr == null || keywordsStr.trim().isEmpty()) {
             System.err.println("Missing --keywords \"k1,k2,...\"");
@@ -245,55 +379,43 @@ public class PageRankingBM {
             return;
         }
 
-        // Load CSV
-        List<CsvRow> rows = readCsv(path);
-        if (rows.isEmpty()) {
-            System.err.println("CSV has no data rows (maybe only header).");
-            return;
-        }
-
-        // Build products
+        // Stream CSV rows straight into products (rows are not kept)
         List<Product> products = new ArrayList<>();
-        for (CsvRow r : rows) {
+        readCsv(path, r -> {
             Product p = new Product();
             p.brand = r.get("Brand");
             p.model = r.get("Model");
             p.title = r.get("Title");
+            p.titleKey = titleKey(p.title);
             p.corpus = buildCorpus(r);
             p.price = parseDouble(r.get("Price (USD)"));
             p.rating = parseDouble(r.get("Rating (out of 5)"));
             products.add(p);
+        });
+        if (products.isEmpty()) {
+            System.err.println("CSV has no data rows (maybe only header).");
+            return;
         }
 
-        // Build Boyer–Moore matchers
-        Map<String, BoyerMoore> matchers = new LinkedHashMap<>();
-        for (String k : keywords) {
-            matchers.put(k, new BoyerMoore(k, ignoreCase));
+        // Duplicate keywords are reported once (same as the per-keyword map)
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(keywords));
+        int[][] counts;
+        KeywordCountCache cache = null;
+        if (arg.containsKey("cache")) {
+            long mb = Long.parseLong(arg.getOrDefault("cache-mb", "256"));
+            cache = KeywordCountCache.open(Paths.get(arg.get("cache")), mb * (1 << 20) / Integer.BYTES);
+            counts = countCached(products, distinct, ignoreCase, overlap, multi, threads, cache,
+                    KeywordCountCache.contentHash(path));
+        } else {
+            counts = countMatrix(products, distinct, ignoreCase, overlap, multi, threads);
         }
-
-        // Count occurrences for each product
-        List<PageResult> results = new ArrayList<>();
-        for (Product p : products) {
-            PageResult pr = new PageResult();
-            pr.prod = p;
-            int sum = 0;
-            for (Map.Entry<String, BoyerMoore> e : matchers.entrySet()) {
-                int c = e.getValue().countIn(p.corpus, ignoreCase, overlap);
-                pr.perKeyword.put(e.getKey(), c);
-                sum += c;
-            }
-            pr.total = sum;
-            results.add(pr);
+        int[] total = new int[products.size()];
+        for (int i = 0; i < total.length; i++) {
+            for (int c : counts[i]) total[i] += c;
         }
 
-        // Rank by total desc; tie-breaker: higher rating, then title asc
-        results.sort((a, b) -> {
-            int cmp = Integer.compare(b.total, a.total);
-            if (cmp != 0) return cmp;
-            cmp = Double.compare(b.prod.rating, a.prod.rating);
-            if (cmp != 0) return cmp;
-            return safe(a.prod.title).compareToIgnoreCase(safe(b.prod.title));
-        });
+        // Rank by total desc; tie-breaker: higher rating, then title asc (only the top N are ordered)
+        int[] top = new TopPages(products, total).top(topN);
 
         // Print
         System.out.println("===== Page Ranking by Keyword Frequency (Boyer–Moore over CSV) =====");
@@ -301,20 +423,144 @@ public class PageRankingBM {
         System.out.printf("Keywords  : %s%n", String.join(", ", keywords));
         System.out.printf("IgnoreCase: %s, Overlap: %s%n%n", ignoreCase, overlap);
 
-        int limit = Math.min(topN, results.size());
-        for (int i = 0; i < limit; i++) {
-            PageResult r = results.get(i);
+        for (int i = 0; i < top.length; i++) {
+            Product p = products.get(top[i]);
             System.out.printf(
                     "%2d) Total=%-4d | %s | $%.2f | ⭐ %.1f%n",
-                    i + 1, r.total, safe(r.prod.title), r.prod.price, r.prod.rating
+                    i + 1, total[top[i]], safe(p.title), p.price, p.rating
             );
             System.out.print("    Per-keyword: ");
             StringBuilder sb = new StringBuilder();
-            for (Map.Entry<String, Integer> e : r.perKeyword.entrySet()) {
-                sb.append("\"").append(e.getKey()).append("\": ").append(e.getValue()).append("  ");
+            for (int k = 0; k < distinct.size(); k++) {
+                sb.append("\"").append(distinct.get(k)).append("\": ").append(counts[top[i]][k]).append("  ");
             }
             System.out.println(sb.toString().trim());
         }
+
+        // Saved only after the results are out; a failed write costs the next run its hits, not this query
+        if (cache != null) {
+            try {
+                cache.save();
+            } catch (IOException e) {
+                System.err.println("Could not save keyword cache " + cache.file() + ": " + e.getMessage());
+            }
+            System.err.printf("Keyword cache: %d cached, %d counted (%d entries in %s)%n",
+                    cache.hits(), cache.misses(), cache.size(), cache.file());
+        }
+    }
+
+    /* ======================== Counting ======================== */
+    /**
+     * counts[page][keyword] for all pages. Pages are split into ranges on a ForkJoin pool;
+     * the matchers are immutable and shared by all workers, and each worker writes only its own rows,
+     * so the matrix (and therefore the ranking) is the same for any number of threads.
+     *
+     * @param multi   one Wu–Manber scan per page if true, else one Boyer–Moore scan per keyword
+     * @param threads pool size; 1 counts on the calling thread
+     */
+    static int[][] countMatrix(List<Product> products, List<String> keywords, boolean ignoreCase,
+                               boolean overlap, boolean multi, int threads) {
+        int[][] counts = new int[products.size()][keywords.size()];
+        CountTask task;
+        if (multi) {
+            task = new CountTask(products, counts, 0, products.size(), ignoreCase, overlap,
+                    new MultiPatternMatcher(keywords, ignoreCase), null);
+        } else {
+            BoyerMoore[] matchers = new BoyerMoore[keywords.size()];
+            for (int k = 0; k < matchers.length; k++) matchers[k] = new BoyerMoore(keywords.get(k), ignoreCase);
+            task = new CountTask(products, counts, 0, products.size(), ignoreCase, overlap, null, matchers);
+        }
+        if (threads <= 1) {
+            task.invoke();
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                pool.invoke(task);
+            } finally {
+                pool.shutdown();
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * countMatrix through a keyword count cache: cached columns are copied in, and only
+     * the keywords without an entry are counted (and then added to the cache).
+     */
+    static int[][] countCached(List<Product> products, List<String> keywords, boolean ignoreCase,
+                               boolean overlap, boolean multi, int threads, KeywordCountCache cache, String csvHash) {
+        int n = products.size();
+        int[][] counts = new int[n][keywords.size()];
+        List<String> missing = new ArrayList<>();
+        List<Integer> missingAt = new ArrayList<>();
+        for (int k = 0; k < keywords.size(); k++) {
+            int[] col = cache.get(KeywordCountCache.key(csvHash, keywords.get(k), ignoreCase, overlap), n);
+            if (col == null) {
+                missing.add(keywords.get(k));
+                missingAt.add(k);
+                continue;
+            }
+            for (int i = 0; i < n; i++) counts[i][k] = col[i];
+        }
+        if (missing.isEmpty()) return counts;
+
+        int[][] fresh = countMatrix(products, missing, ignoreCase, overlap, multi, threads);
+        for (int m = 0; m < missing.size(); m++) {
+            int k = missingAt.get(m);
+            int[] col = new int[n];
+            for (int i = 0; i < n; i++) {
+                col[i] = fresh[i][m];
+                counts[i][k] = col[i];
+            }
+            cache.put(KeywordCountCache.key(csvHash, missing.get(m), ignoreCase, overlap), col);
+        }
+        return counts;
+    }
+
+    // Counts pages [lo, hi); splits in halves down to LEAF pages
+    static final class CountTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final int LEAF = 64;
+
+        private final List<Product> products;
+        private final int[][] counts;
+        private final int lo, hi;
+        private final boolean ignoreCase, overlap;
+        private final MultiPatternMatcher multi;   // exactly one of multi / matchers is set
+        private final BoyerMoore[] matchers;
+
+        CountTask(List<Product> products, int[][] counts, int lo, int hi, boolean ignoreCase, boolean overlap,
+                  MultiPatternMatcher multi, BoyerMoore[] matchers) {
+            this.products = products;
+            this.counts = counts;
+            this.lo = lo;
+            this.hi = hi;
+            this.ignoreCase = ignoreCase;
+            this.overlap = overlap;
+            this.multi = multi;
+            this.matchers = matchers;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > LEAF) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new CountTask(products, counts, lo, mid, ignoreCase, overlap, multi, matchers),
+                        new CountTask(products, counts, mid, hi, ignoreCase, overlap, multi, matchers));
+                return;
+            }
+            if (multi != null) {
+                int[] scratch = new int[multi.size()];
+                for (int i = lo; i < hi; i++) {
+                    multi.countFolded(products.get(i).text(ignoreCase), overlap, counts[i], scratch);
+                }
+            } else {
+                for (int i = lo; i < hi; i++) {
+                    String text = products.get(i).text(ignoreCase);
+                    for (int k = 0; k < matchers.length; k++) counts[i][k] = matchers[k].countFolded(text, overlap);
+                }
+            }
+        }
     }
 
     /* ======================== Utils ======================== */
@@ -32,6 +32,11 @@ package lab7;
  ***************************************************************/
 
 public class BoyerMoore {
+    // searchPrefiltered falls back to search() past PREFILTER_SLACK + i / max(PREFILTER_GAP, M) rejected
+    // candidates: the longer the pattern, the further the bad-character rule skips on its own
+    private static final int PREFILTER_SLACK = 16;
+    private static final int PREFILTER_GAP = 8;
+
     private final int R;     // the radix
     private int[] right;     // the bad-character skip array
 
@@ -68,10 +73,15 @@ public class BoyerMoore {
 
     // return offset of first match; N if no match
     public int search(String txt) {
+        return search(txt, 0);
+    }
+
+    // return offset of first match at or after from; N if no match
+    private int search(String txt, int from) {
         int M = pat.length();
         int N = txt.length();
         int skip;
-        for (int i = 0; i <= N - M; i += skip) {
+        for (int i = from; i <= N - M; i += skip) {
             skip = 0;
             for (int j = M - 1; j >= 0; j--) {
                 if (pat.charAt(j) != txt.charAt(i + j)) {
@@ -85,6 +95,32 @@ public class BoyerMoore {
     }
 
 
+    // same result as search(txt); candidates are found with a first/last character prefilter:
+    // String.indexOf(char) is a HotSpot intrinsic that compares 16-32 chars per SIMD instruction,
+    // each position whose first and last characters match is verified right to left as in search(),
+    // and once rejected candidates become denser than one per max(PREFILTER_GAP, M) chars (small
+    // alphabets, frequent first character, long patterns) the rest of the text is scanned with the
+    // scalar search() loop
+    public int searchPrefiltered(String txt) {
+        int M = pat.length();
+        int N = txt.length();
+        if (M == 0) return 0;
+        char first = pat.charAt(0), last = pat.charAt(M - 1);
+        int gap = Math.max(PREFILTER_GAP, M);
+        int rejects = 0;
+        int i = txt.indexOf(first);
+        while (i >= 0 && i <= N - M) {
+            if (txt.charAt(i + M - 1) == last) {
+                int j = M - 2;
+                while (j > 0 && pat.charAt(j) == txt.charAt(i + j)) j--;
+                if (j <= 0) return i;    // found
+            }
+            if (++rejects > PREFILTER_SLACK + i / gap) return search(txt, i + 1);
+            i = txt.indexOf(first, i + 1);
+        }
+        return N;                        // not found
+    }
+
     // return offset of first match; N if no match
     public int search(char[] text) {
         int M = pattern.length;
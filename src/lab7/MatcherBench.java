@@ -0,0 +1,381 @@
+package lab7;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * MatcherBench
+ * - JMH-style benchmark suite for the lab7 string matchers: BruteForceMatch.search1, BoyerMoore.search,
+ *   BoyerMoore.searchPrefiltered and KMP. (JMH itself is not among the project's libraries, so the
+ *   harness below follows its rules by hand.)
+ * - Parameters: text length, pattern length, alphabet (binary, DNA, English, protein), hit ratio
+ *   (fraction of texts that contain the pattern; the others are cleaned of every occurrence) and
+ *   phase (build = preprocessing only, search = search with a prebuilt matcher).
+ * - Each configuration runs in its own JVM (--fork true) so JIT profiles of one engine never leak into
+ *   another; inside, time-based warmup iterations are discarded and measurement iterations report
+ *   mean ± standard deviation. Results go through a Blackhole so the JIT cannot drop the work.
+ * - Reported: ns/op, throughput (ops/s and text MB/s for search), allocation per op and allocation
+ *   rate (com.sun.management.ThreadMXBean, like JMH's -prof gc).
+ * <p>
+ * Usage (every argument is optional, lists are comma-separated):
+ * java lab7.MatcherBench --engine bf,bm,bm-prefilter,kmp --alphabet binary,dna,english,protein
+ *      --text 100000 --pattern 8,64 --hit 0,1 --phase build,search
+ *      --warmup 3 --iterations 5 --time-ms 200 --fork true
+ */
+public class MatcherBench {
+
+    /* ----------------- Harness ----------------- */
+
+    /** One benchmark operation; i counts invocations (used to walk a pool of inputs). */
+    interface Op {
+        long run(int i);
+    }
+
+    /**
+     * Consumes results so the JIT cannot treat the measured work as dead code: primitive results are
+     * summed, objects (built matchers) escape through a static field, so their allocation stays.
+     */
+    static final class Blackhole {
+        static Object escaped;
+        private long bits;
+
+        static long escape(Object o) {
+            escaped = o;
+            return 1;
+        }
+
+        void consume(long v) {
+            bits += v;
+        }
+
+        long bits() {
+            return bits;
+        }
+    }
+
+    /** Measurement result: per-iteration mean and standard deviation, allocation per op. */
+    static final class Result {
+        final double nsPerOp, sdNsPerOp, bytesPerOp;
+
+        Result(double nsPerOp, double sdNsPerOp, double bytesPerOp) {
+            this.nsPerOp = nsPerOp;
+            this.sdNsPerOp = sdNsPerOp;
+            this.bytesPerOp = bytesPerOp;
+        }
+
+        double opsPerSec() {
+            return 1e9 / nsPerOp;
+        }
+
+        /** allocation rate in MB/s at the measured throughput */
+        double allocMBPerSec() {
+            return bytesPerOp * opsPerSec() / 1e6;
+        }
+    }
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * Run op for warmup + iterations time-boxed iterations of iterNanos each; warmup results are
+     * discarded. Operations run in batches (sized during warmup to take >= ~100 µs) so that reading
+     * the clock does not distort short operations.
+     */
+    static Result measure(Op op, int warmup, int iterations, long iterNanos) {
+        Blackhole bh = new Blackhole();
+        int batch = 1;
+        int i = 0;
+        double[] nsPerOp = new double[iterations];
+        long allocated = 0, ops = 0;
+        for (int it = 0; it < warmup + iterations; it++) {
+            long bytes0 = THREADS.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime(), now = start;
+            long done = 0;
+            while (now - start < iterNanos) {
+                long b0 = now;
+                for (int k = 0; k < batch; k++) bh.consume(op.run(i++));
+                done += batch;
+                now = System.nanoTime();
+                if (it < warmup && now - b0 < 100_000 && batch < (1 << 20)) batch <<= 1;
+            }
+            long bytes1 = THREADS.getCurrentThreadAllocatedBytes();
+            if (it >= warmup) {
+                nsPerOp[it - warmup] = (double) (now - start) / done;
+                allocated += bytes1 - bytes0;
+                ops += done;
+            }
+        }
+        sink = bh.bits();
+        double mean = 0;
+        for (double v : nsPerOp) mean += v;
+        mean /= iterations;
+        double var = 0;
+        for (double v : nsPerOp) var += (v - mean) * (v - mean);
+        double sd = iterations > 1 ? Math.sqrt(var / (iterations - 1)) : 0;
+        return new Result(mean, sd, (double) allocated / ops);
+    }
+
+    static volatile long sink;
+
+    /* ----------------- Engines ----------------- */
+
+    static final String[] ENGINES = {"bf", "bm", "bm-prefilter", "kmp"};
+
+    /** Preprocessing only; null when the engine has none (brute force). */
+    static Op buildOp(String engine, String pat) {
+        switch (engine) {
+            case "bm":
+            case "bm-prefilter":
+                return i -> Blackhole.escape(new BoyerMoore(pat));
+            case "kmp":
+                return i -> Blackhole.escape(new KMP(pat));
+            case "bf":
+                return null;
+            default:
+                throw new IllegalArgumentException("Unknown engine: " + engine);
+        }
+    }
+
+    /** Search only, with the matcher built once up front; walks the text pool. */
+    static Op searchOp(String engine, String pat, String[] texts) {
+        int n = texts.length;
+        switch (engine) {
+            case "bf":
+                return i -> BruteForceMatch.search1(pat, texts[(i & Integer.MAX_VALUE) % n]);
+            case "bm": {
+                BoyerMoore bm = new BoyerMoore(pat);
+                return i -> bm.search(texts[(i & Integer.MAX_VALUE) % n]);
+            }
+            case "bm-prefilter": {
+                BoyerMoore bm = new BoyerMoore(pat);
+                return i -> bm.searchPrefiltered(texts[(i & Integer.MAX_VALUE) % n]);
+            }
+            case "kmp": {
+                KMP kmp = new KMP(pat);
+                return i -> kmp.search(texts[(i & Integer.MAX_VALUE) % n]);
+            }
+            default:
+                throw new IllegalArgumentException("Unknown engine: " + engine);
+        }
+    }
+
+    /* ----------------- Workloads ----------------- */
+
+    static final int POOL = 8;
+
+    // All alphabets stay below 256 (R of BoyerMoore / KMP)
+    private static final String BINARY = "01";
+    private static final String DNA = "ACGT";
+    private static final String PROTEIN = "ACDEFGHIKLMNPQRSTVWY";
+    // English letters and space, weighted by approximate frequency (per 1000 chars)
+    private static final String ENGLISH = " etaoinshrdlcumwfgypbvkjxqz";
+    private static final int[] ENGLISH_FREQ =
+            {180, 102, 75, 67, 62, 59, 55, 52, 49, 45, 35, 33, 23, 22, 20, 19, 18, 16, 16, 15, 12, 8, 6, 2, 2, 1, 1};
+
+    /** Random text over the alphabet; English is frequency-weighted, the others uniform. */
+    static String randomText(String alphabet, int n, long seed) {
+        Random r = new Random(seed);
+        StringBuilder sb = new StringBuilder(n);
+        if (alphabet.equals("english")) {
+            int total = 0;
+            for (int f : ENGLISH_FREQ) total += f;
+            for (int i = 0; i < n; i++) {
+                int x = r.nextInt(total), k = 0;
+                while (x >= ENGLISH_FREQ[k]) x -= ENGLISH_FREQ[k++];
+                sb.append(ENGLISH.charAt(k));
+            }
+        } else {
+            String chars = chars(alphabet);
+            for (int i = 0; i < n; i++) sb.append(chars.charAt(r.nextInt(chars.length())));
+        }
+        return sb.toString();
+    }
+
+    private static String chars(String alphabet) {
+        switch (alphabet) {
+            case "binary": return BINARY;
+            case "dna": return DNA;
+            case "protein": return PROTEIN;
+            case "english": return ENGLISH;
+            default: throw new IllegalArgumentException("Unknown alphabet: " + alphabet);
+        }
+    }
+
+    /** Pattern drawn from the same distribution as the texts (a slice of an independent text). */
+    static String pattern(String alphabet, int m, long seed) {
+        return randomText(alphabet, m, seed ^ 0x5DEECE66DL);
+    }
+
+    /**
+     * POOL texts; the first round(hit * POOL) contain the pattern (one copy planted at a random
+     * position after removing natural occurrences), the rest contain no occurrence at all.
+     */
+    static String[] texts(String alphabet, int n, String pat, double hit, long seed) {
+        String chars = chars(alphabet);
+        Random r = new Random(seed);
+        int hits = (int) Math.round(hit * POOL);
+        String[] out = new String[POOL];
+        for (int t = 0; t < POOL; t++) {
+            StringBuilder sb = new StringBuilder(randomText(alphabet, n, seed + 31L * t));
+            erase(sb, pat, chars, r);
+            if (t < hits && n >= pat.length()) {
+                int at = r.nextInt(n - pat.length() + 1);
+                sb.replace(at, at + pat.length(), pat);
+            }
+            out[t] = sb.toString();
+        }
+        return out;
+    }
+
+    // Change the last char of every occurrence until none is left; a change can only create new
+    // occurrences that overlap it, so scanning resumes m - 1 chars back
+    private static void erase(StringBuilder sb, String pat, String chars, Random r) {
+        int m = pat.length();
+        char last = pat.charAt(m - 1);
+        int at = sb.indexOf(pat);
+        while (at >= 0) {
+            char c;
+            do {
+                c = chars.charAt(r.nextInt(chars.length()));
+            } while (c == last);
+            sb.setCharAt(at + m - 1, c);
+            at = sb.indexOf(pat, Math.max(0, at - m + 1));
+        }
+    }
+
+    /* ----------------- Suite ----------------- */
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> arg = parseArgs(args);
+        int warmup = Integer.parseInt(arg.getOrDefault("warmup", "3"));
+        int iterations = Integer.parseInt(arg.getOrDefault("iterations", "5"));
+        long iterNanos = Long.parseLong(arg.getOrDefault("time-ms", "200")) * 1_000_000L;
+
+        if (arg.containsKey("child")) {     // one configuration inside a forked JVM
+            String[] c = arg.get("child").split(",");
+            Result r = run(c[0], c[1], Integer.parseInt(c[2]), Integer.parseInt(c[3]), Double.parseDouble(c[4]),
+                    c[5], warmup, iterations, iterNanos);
+            printResult(r);
+            return;
+        }
+
+        String[] engines = arg.getOrDefault("engine", String.join(",", ENGINES)).split(",");
+        String[] alphabets = arg.getOrDefault("alphabet", "binary,dna,english,protein").split(",");
+        String[] textLens = arg.getOrDefault("text", "100000").split(",");
+        String[] patLens = arg.getOrDefault("pattern", "8,64").split(",");
+        String[] hitRatios = arg.getOrDefault("hit", "0,1").split(",");
+        String[] phases = arg.getOrDefault("phase", "build,search").split(",");
+        boolean fork = Boolean.parseBoolean(arg.getOrDefault("fork", "true"));
+
+        System.out.printf("=== MatcherBench: %d warmup + %d x %d ms iterations, %s ===%n",
+                warmup, iterations, iterNanos / 1_000_000, fork ? "one JVM per configuration" : "single JVM");
+        System.out.printf("%-13s %-8s %-5s %8s %8s %5s  %14s %8s %12s %10s %10s %10s%n", "Engine", "Alphabet",
+                "Phase", "Text", "Pattern", "Hit", "ns/op", "± sd", "ops/s", "text MB/s", "B/op", "alloc MB/s");
+        for (String phase : phases) {
+            for (String engine : engines) {
+                for (String alphabet : alphabets) {
+                    for (String p : patLens) {
+                        for (String n : textLens) {
+                            for (String h : hitRatios) {
+                                if (phase.equals("build") && (buildOp(engine, "x") == null
+                                        || !n.equals(textLens[0]) || !h.equals(hitRatios[0]))) {
+                                    continue;   // build is independent of the text; bf has no build
+                                }
+                                int textLen = Integer.parseInt(n.trim()), patLen = Integer.parseInt(p.trim());
+                                double hit = Double.parseDouble(h.trim());
+                                String spec = String.join(",", engine, alphabet, String.valueOf(textLen),
+                                        String.valueOf(patLen), String.valueOf(hit), phase);
+                                Result r = fork
+                                        ? runForked(MatcherBench.class, spec, warmup, iterations, iterNanos)
+                                        : run(engine, alphabet, textLen, patLen, hit, phase, warmup, iterations,
+                                        iterNanos);
+                                boolean search = phase.equals("search");
+                                System.out.printf("%-13s %-8s %-5s %8s %8d %5s  %14.1f %8.1f %12.0f %10s %10.1f %10.1f%n",
+                                        engine, alphabet, phase, search ? textLen : "-", patLen, search ? h.trim() : "-",
+                                        r.nsPerOp, r.sdNsPerOp, r.opsPerSec(),
+                                        search ? String.format("%.1f", textLen * r.opsPerSec() / 1e6) : "-",
+                                        r.bytesPerOp, r.allocMBPerSec());
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /** Build the workload and measure one configuration in this JVM. */
+    static Result run(String engine, String alphabet, int textLen, int patLen, double hit, String phase,
+                      int warmup, int iterations, long iterNanos) {
+        String pat = pattern(alphabet, patLen, 7);
+        Op op;
+        if (phase.equals("build")) {
+            op = buildOp(engine, pat);
+            if (op == null) throw new IllegalArgumentException(engine + " has no build phase");
+        } else if (phase.equals("search")) {
+            op = searchOp(engine, pat, texts(alphabet, textLen, pat, hit, 42));
+        } else {
+            throw new IllegalArgumentException("Unknown phase: " + phase);
+        }
+        return measure(op, warmup, iterations, iterNanos);
+    }
+
+    /** Child side of runForked: the one line the parent reads back. */
+    static void printResult(Result r) {
+        System.out.printf("RESULT %s %s %s%n", r.nsPerOp, r.sdNsPerOp, r.bytesPerOp);
+    }
+
+    /**
+     * Same configuration in a fresh JVM (same java, same class path): runs main --child spec with the
+     * iteration settings; main must measure that one configuration and report it with printResult.
+     */
+    static Result runForked(Class<?> main, String spec, int warmup, int iterations, long iterNanos)
+            throws IOException, InterruptedException {
+        List<String> cmd = new ArrayList<>();
+        cmd.add(System.getProperty("java.home") + "/bin/java");
+        cmd.add("-cp");
+        cmd.add(System.getProperty("java.class.path"));
+        cmd.add(main.getName());
+        cmd.add("--child");
+        cmd.add(spec);
+        cmd.add("--warmup");
+        cmd.add(String.valueOf(warmup));
+        cmd.add("--iterations");
+        cmd.add(String.valueOf(iterations));
+        cmd.add("--time-ms");
+        cmd.add(String.valueOf(iterNanos / 1_000_000));
+        Process proc = new ProcessBuilder(cmd).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+        String result = null;
+        try (BufferedReader in = new BufferedReader(
+                new InputStreamReader(proc.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith("RESULT ")) result = line;
+            }
+        }
+        if (proc.waitFor() != 0 || result == null) {
+            throw new IllegalStateException("Forked benchmark failed: " + spec);
+        }
+        String[] f = result.split(" ");
+        return new Result(Double.parseDouble(f[1]), Double.parseDouble(f[2]), Double.parseDouble(f[3]));
+    }
+
+    /** --key value pairs; a bare --flag means "true". */
+    static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> m = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) continue;
+            String key = args[i].substring(2);
+            if (i + 1 < args.length && !args[i + 1].startsWith("--")) m.put(key, args[++i]);
+            else m.put(key, "true");
+        }
+        return m;
+    }
+}
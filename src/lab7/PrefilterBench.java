@@ -0,0 +1,98 @@
+package lab7;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * PrefilterBench
+ * - Compares BoyerMoore.search (scalar, right to left) with BoyerMoore.searchPrefiltered
+ *   (first/last-character prefilter on String.indexOf) on the Task1 workloads:
+ *   100 random 10,000-letter texts with "disk", "protein", "PPI", and Protein.txt (lowercased)
+ *   with "complex", "prediction".
+ * - Search time only (the matcher is built outside the timed loop), measured with the MatcherBench
+ *   harness (WARMUP + RUNS iterations), reported as mean ns per search. Offsets are checked to be
+ *   identical first.
+ * - Every (workload, engine) pair runs in its own JVM, so one engine's JIT profile never shapes the
+ *   next; --fork false measures everything in this JVM instead. --engine also takes bf and kmp, to
+ *   time the Task1 matchers on the same texts (their preprocessing: MatcherBench --phase build).
+ * <p>
+ * Usage: java lab7.PrefilterBench [Protein.txt] [--engine bm,bm-prefilter] [--fork true]
+ */
+public class PrefilterBench {
+
+    private static final String[] PATTERNS = {"disk", "protein", "PPI"};
+    private static final String[] PROTEIN_PATTERNS = {"complex", "prediction"};
+    private static final int TEXT_LEN = 10_000;
+    private static final int TEXTS = 100;
+    private static final int WARMUP = 3;
+    private static final int RUNS = 5;
+    private static final long ITER_NANOS = 100_000_000L;
+    private static final String RANDOM = "random";
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> arg = MatcherBench.parseArgs(args);
+        if (arg.containsKey("child")) {     // one (workload, engine) pair inside a forked JVM
+            String[] c = arg.get("child").split(",", 3);
+            MatcherBench.printResult(MatcherBench.measure(MatcherBench.searchOp(c[0], c[1], texts(c[2])),
+                    WARMUP, RUNS, ITER_NANOS));
+            return;
+        }
+        String protein = args.length > 0 && !args[0].startsWith("--") ? args[0] : "Protein.txt";
+        String[] engines = arg.getOrDefault("engine", "bm,bm-prefilter").split(",");
+        boolean fork = Boolean.parseBoolean(arg.getOrDefault("fork", "true"));
+
+        System.out.printf("=== BoyerMoore: scalar search vs first/last-char prefilter (ns per search, %s) ===%n",
+                fork ? "one JVM per engine" : "single JVM");
+        StringBuilder header = new StringBuilder(String.format("%-26s", "Workload"));
+        for (String e : engines) header.append(String.format("  %-12s", e));
+        System.out.println(header.append("  speedup"));
+        for (String p : PATTERNS) report("random 10k / \"" + p + "\"", p, RANDOM, engines, fork);
+        for (String p : PROTEIN_PATTERNS) report("Protein.txt / \"" + p + "\"", p, protein, engines, fork);
+    }
+
+    private static void report(String name, String pat, String source, String[] engines, boolean fork)
+            throws IOException, InterruptedException {
+        String[] texts = texts(source);
+        BoyerMoore bm = new BoyerMoore(pat);
+        for (String txt : texts) {
+            if (bm.search(txt) != bm.searchPrefiltered(txt)) {
+                throw new IllegalStateException("Offsets differ for \"" + pat + "\"");
+            }
+        }
+        StringBuilder line = new StringBuilder(String.format("%-26s", name));
+        double scalar = 0, filtered = 0;
+        for (String engine : engines) {
+            double ns = fork
+                    ? MatcherBench.runForked(PrefilterBench.class, engine + "," + pat + "," + source,
+                    WARMUP, RUNS, ITER_NANOS).nsPerOp
+                    : MatcherBench.measure(MatcherBench.searchOp(engine, pat, texts), WARMUP, RUNS,
+                    ITER_NANOS).nsPerOp;
+            if (engine.equals("bm")) scalar = ns;
+            if (engine.equals("bm-prefilter")) filtered = ns;
+            line.append(String.format("  %-12.0f", ns));
+        }
+        // speedup of the prefilter over the scalar search, when both were timed
+        System.out.println(line.append(scalar > 0 && filtered > 0 ? String.format("  %.2fx", scalar / filtered) : "  -"));
+    }
+
+    /** The random Task1 texts, or the given file lowercased as a single text. */
+    private static String[] texts(String source) throws IOException {
+        if (source.equals(RANDOM)) {
+            String[] texts = new String[TEXTS];
+            for (int t = 0; t < TEXTS; t++) texts[t] = randAlpha(TEXT_LEN, 42 + t);
+            return texts;
+        }
+        return new String[]{Files.readString(Path.of(source)).toLowerCase()};
+    }
+
+    /** Same generator as Task1: lowercase letters, fixed seed. */
+    private static String randAlpha(int n, long seed) {
+        Random r = new Random(seed);
+        StringBuilder sb = new StringBuilder(n);
+        for (int i = 0; i < n; i++) sb.append((char) ('a' + r.nextInt(26)));
+        return sb.toString();
+    }
+}